@@ -1,11 +1,37 @@
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
 
 public class App {
 
@@ -20,6 +46,12 @@ public class App {
                 ejecutarGeneracion(argumentos);
             } else if ("simulate".equals(subcomando)) {
                 ejecutarSimulacion(argumentos);
+            } else if ("analyze".equals(subcomando)) {
+                ejecutarAnalisis(argumentos);
+            } else if ("import".equals(subcomando)) {
+                ejecutarImportacion(argumentos);
+            } else if ("serve".equals(subcomando)) {
+                ServidorSimulacion.desdeArgumentos(argumentos).iniciar();
             } else {
                 System.err.println("Subcomando desconocido: " + subcomando);
                 mostrarAyuda();
@@ -53,47 +85,167 @@ public class App {
 
     private static void ejecutarSimulacion(String[] argumentos) throws IOException {
         ParametrosSimulacion parametros = ParametrosSimulacion.desdeArgumentos(argumentos);
+        String servidor = System.getenv(ClienteSimulacion.VARIABLE_SERVIDOR);
+        if (servidor != null && !servidor.trim().isEmpty() && ClienteSimulacion.ejecutarRemoto(servidor.trim(), argumentos)) {
+            return;
+        }
+        List<Core.Proceso> procesos = simular(parametros, null);
+        System.out.print(formatearResumen(procesos));
+    }
+
+    static List<Core.Proceso> simular(ParametrosSimulacion parametros, IOKit.CacheTrazas cache) throws IOException {
+        byte[] instantanea = null;
+        if (parametros.rutaReanudacion != null) {
+            instantanea = IOKit.Instantaneas.leer(parametros.rutaReanudacion);
+            parametros = parametros.completarConInstantanea(SimuladorMotor.leerEncabezado(instantanea));
+        }
         try (BufferedWriter bitacora = IOKit.UtilidadesLog.crearEscritorLog(parametros.directorioSalida)) {
             IOKit.UtilidadesLog.imprimir(bitacora, "Inicio:");
-            List<Core.Proceso> procesos = IOKit.EntradaSalidaProcesos.leerProcesos(parametros.directorioEntrada, parametros.numeroProcesos, bitacora);
-            SimuladorMotor motor = new SimuladorMotor(procesos, parametros.totalMarcos, parametros.numeroProcesos, bitacora);
+            List<Core.Proceso> procesos = IOKit.EntradaSalidaProcesos.leerProcesos(parametros.directorioEntrada, parametros.numeroProcesos,
+                    bitacora, cache);
+            SimuladorMotor motor;
+            if (instantanea == null) {
+                motor = new SimuladorMotor(procesos, parametros.totalMarcos, parametros.numeroProcesos, parametros.directorioEntrada,
+                        parametros.planificador, bitacora);
+            } else {
+                motor = SimuladorMotor.desdeInstantanea(procesos, parametros.directorioEntrada, instantanea, bitacora);
+                IOKit.UtilidadesLog.imprimir(bitacora, "Reanudando desde " + parametros.rutaReanudacion);
+            }
+            motor.configurarRegistroDetallado(parametros.registroDetallado);
+            IOKit.UtilidadesLog.imprimir(bitacora, "Simulación:");
+            if (parametros.rutaPuntoControl != null) {
+                try (IOKit.EscritorInstantaneas escritor = new IOKit.EscritorInstantaneas(parametros.rutaPuntoControl)) {
+                    motor.configurarPuntosControl(escritor, parametros.intervaloPuntoControl);
+                    motor.ejecutar();
+                }
+            } else {
+                motor.ejecutar();
+            }
+            IOKit.EntradaSalidaProcesos.escribirCsvEstadisticas(procesos, parametros.directorioSalida);
+            return procesos;
+        }
+    }
+
+    private static void ejecutarAnalisis(String[] argumentos) throws IOException {
+        ParametrosAnalisis parametros = ParametrosAnalisis.desdeArgumentos(argumentos);
+        List<Path> archivos = IOKit.EntradaSalidaProcesos.listarArchivosProcesos(parametros.directorioEntrada, parametros.numeroProcesos);
+        List<Core.CurvaFallos> curvas = new ArrayList<>(archivos.size());
+        for (int pid = 0; pid < archivos.size(); pid++) {
+            try (IOKit.LectorTraza lector = new IOKit.LectorTraza(archivos.get(pid))) {
+                int maxMarcos = parametros.maxMarcos > 0 ? parametros.maxMarcos
+                        : Math.max(1, Math.min(lector.totalPaginas, ParametrosAnalisis.MAX_MARCOS_POR_DEFECTO));
+                Core.CurvaFallos curva = AnalizadorMuestreo.analizar(pid, lector, maxMarcos, parametros.tasaMuestreo,
+                        parametros.maxPaginasMuestreadas);
+                curvas.add(curva);
+                System.out.printf("Proceso %d: \n-NR=%d \n-Muestreadas=%d \n-Tasa muestreo=%.6f \n-Marcos=1..%d%n",
+                        curva.pid, curva.totalReferencias, curva.referenciasMuestreadas, curva.tasaMuestreo,
+                        curva.maxMarcos());
+            }
+        }
+        IOKit.EntradaSalidaProcesos.escribirCsvCurvas(curvas, parametros.directorioSalida);
+    }
+
+    private static void ejecutarImportacion(String[] argumentos) throws IOException {
+        ParametrosImportacion parametros = ParametrosImportacion.desdeArgumentos(argumentos);
+        IOKit.ImportadorTrazas importador = new IOKit.ImportadorTrazas(parametros.tamanoPagina,
+                parametros.incluirInstrucciones, parametros.conservarVpn);
+        if (parametros.totalMarcos <= 0) {
+            List<Path> existentes = Files.isDirectory(parametros.directorioSalida)
+                    ? IOKit.EntradaSalidaProcesos.listarArchivosProcesos(parametros.directorioSalida, 0)
+                    : new ArrayList<>();
+            if (!existentes.isEmpty() && !parametros.sobrescribir) {
+                throw new IllegalArgumentException("El directorio " + parametros.directorioSalida + " ya contiene "
+                        + existentes.size() + " archivos proc<i>.txt; use --overwrite para reemplazarlos o elija otro --out");
+            }
+            List<Path> escritos = new ArrayList<>(parametros.origenes.size());
+            for (int pid = 0; pid < parametros.origenes.size(); pid++) {
+                Path archivo = parametros.directorioSalida.resolve("proc" + pid + ".txt");
+                try (IOKit.EscritorTrazaProceso escritor = new IOKit.EscritorTrazaProceso(archivo, parametros.tamanoPagina)) {
+                    importador.importar(parametros.origenes.get(pid), escritor);
+                    escritor.confirmar();
+                    escritos.add(archivo);
+                    System.out.println(parametros.origenes.get(pid) + " -> " + archivo + " (" + escritor.totalReferencias() + " referencias)");
+                }
+            }
+            // Con --overwrite no deben quedar proc<j>.txt de una importacion anterior con mas procesos.
+            for (Path sobrante : existentes) {
+                if (!escritos.contains(sobrante)) {
+                    Files.delete(sobrante);
+                    System.out.println("Eliminado " + sobrante + " (de una importacion anterior)");
+                }
+            }
+            return;
+        }
+        List<Core.Proceso> procesos = new ArrayList<>(parametros.origenes.size());
+        for (int pid = 0; pid < parametros.origenes.size(); pid++) {
+            IOKit.ColectorReferencias colector = new IOKit.ColectorReferencias(parametros.tamanoPagina);
+            importador.importar(parametros.origenes.get(pid), colector);
+            procesos.add(colector.construirProceso(pid));
+        }
+        try (BufferedWriter bitacora = IOKit.UtilidadesLog.crearEscritorLog(parametros.directorioSalida)) {
+            IOKit.UtilidadesLog.imprimir(bitacora, "Inicio:");
+            SimuladorMotor motor = new SimuladorMotor(procesos, parametros.totalMarcos, procesos.size(), null,
+                    ConfiguracionPlanificador.porDefecto(), bitacora);
             IOKit.UtilidadesLog.imprimir(bitacora, "Simulación:");
             motor.ejecutar();
             IOKit.EntradaSalidaProcesos.escribirCsvEstadisticas(procesos, parametros.directorioSalida);
-            imprimirResumen(procesos);
         }
+        System.out.print(formatearResumen(procesos));
     }
 
-    private static void imprimirResumen(List<Core.Proceso> procesos) {
+    private static String formatearResumen(List<Core.Proceso> procesos) {
+        StringBuilder resumen = new StringBuilder();
         for (Core.Proceso proceso : procesos) {
             Core.Estadisticas estadisticas = proceso.estadisticas;
             long aciertosDerivados = Math.max(0L, (long) proceso.totalReferencias - estadisticas.fallos);
             double tasaFallos = estadisticas.tasaFallos(proceso.totalReferencias);
             double tasaExito = 1.0 - tasaFallos;
-            System.out.printf("Proceso %d: \n-NR=%d \n-Fallos=%d \n-Aciertos=%d \n-SWAP=%d \n-Tasa fallos=%.4f \n-Tasa exito=%.4f%n",
+            resumen.append(String.format("Proceso %d: \n-NR=%d \n-Fallos=%d \n-Aciertos=%d \n-SWAP=%d \n-Tasa fallos=%.4f \n-Tasa exito=%.4f \n-Cambios contexto=%d%n",
                     proceso.pid, proceso.totalReferencias, estadisticas.fallos, aciertosDerivados,
-                    estadisticas.swaps, tasaFallos, tasaExito);
+                    estadisticas.swaps, tasaFallos, tasaExito, estadisticas.cambiosContexto));
         }
+        return resumen.toString();
     }
 
     private static final class ParametrosSimulacion {
+        private static final long INTERVALO_PUNTO_CONTROL_POR_DEFECTO = 1_000_000L;
+
         final int totalMarcos;
         final int numeroProcesos;
         final Path directorioEntrada;
         final Path directorioSalida;
+        final Path rutaPuntoControl;
+        final long intervaloPuntoControl;
+        final Path rutaReanudacion;
+        final ConfiguracionPlanificador planificador;
+        final boolean registroDetallado;
 
-        private ParametrosSimulacion(int totalMarcos, int numeroProcesos, Path directorioEntrada, Path directorioSalida) {
+        private ParametrosSimulacion(int totalMarcos, int numeroProcesos, Path directorioEntrada, Path directorioSalida,
+                                     Path rutaPuntoControl, long intervaloPuntoControl, Path rutaReanudacion,
+                                     ConfiguracionPlanificador planificador, boolean registroDetallado) {
             this.totalMarcos = totalMarcos;
             this.numeroProcesos = numeroProcesos;
             this.directorioEntrada = directorioEntrada;
             this.directorioSalida = directorioSalida;
+            this.rutaPuntoControl = rutaPuntoControl;
+            this.intervaloPuntoControl = intervaloPuntoControl;
+            this.rutaReanudacion = rutaReanudacion;
+            this.planificador = planificador;
+            this.registroDetallado = registroDetallado;
         }
 
         static ParametrosSimulacion desdeArgumentos(String[] argumentos) {
             int totalMarcos = -1;
             int numeroProcesos = -1;
-            Path directorioEntrada = Paths.get("input");
+            Path directorioEntrada = null;
             Path directorioSalida = Paths.get("output");
+            Path rutaPuntoControl = null;
+            long intervaloPuntoControl = INTERVALO_PUNTO_CONTROL_POR_DEFECTO;
+            Path rutaReanudacion = null;
+            String modoPlanificador = null;
+            int quantum = 0;
+            int[] prioridades = null;
+            boolean registroDetallado = true;
             for (int i = 1; i < argumentos.length; i++) {
                 String actual = argumentos[i];
                 if ("--frames".equals(actual) && i + 1 < argumentos.length) {
@@ -104,10 +256,73 @@ public class App {
                     directorioEntrada = Paths.get(argumentos[++i]);
                 } else if ("--out".equals(actual) && i + 1 < argumentos.length) {
                     directorioSalida = Paths.get(argumentos[++i]);
+                } else if ("--checkpoint".equals(actual) && i + 1 < argumentos.length) {
+                    rutaPuntoControl = Paths.get(argumentos[++i]);
+                } else if ("--checkpoint-every".equals(actual) && i + 1 < argumentos.length) {
+                    intervaloPuntoControl = Long.parseLong(argumentos[++i]);
+                } else if ("--resume".equals(actual) && i + 1 < argumentos.length) {
+                    rutaReanudacion = Paths.get(argumentos[++i]);
+                } else if ("--log".equals(actual) && i + 1 < argumentos.length) {
+                    String nivel = argumentos[++i];
+                    if (!"full".equals(nivel) && !"summary".equals(nivel)) {
+                        throw new IllegalArgumentException("--log debe ser full o summary");
+                    }
+                    registroDetallado = "full".equals(nivel);
+                } else if ("--scheduler".equals(actual) && i + 1 < argumentos.length) {
+                    modoPlanificador = argumentos[++i];
+                } else if ("--quantum".equals(actual) && i + 1 < argumentos.length) {
+                    quantum = Integer.parseInt(argumentos[++i]);
+                } else if ("--priorities".equals(actual) && i + 1 < argumentos.length) {
+                    String[] partes = argumentos[++i].split(",");
+                    prioridades = new int[partes.length];
+                    for (int j = 0; j < partes.length; j++) {
+                        prioridades[j] = Integer.parseInt(partes[j].trim());
+                    }
                 } else {
                     throw new IllegalArgumentException("Argumento desconocido o mal formado: " + actual);
                 }
             }
+            if (intervaloPuntoControl <= 0) {
+                throw new IllegalArgumentException("--checkpoint-every debe ser un entero positivo");
+            }
+            ConfiguracionPlanificador planificador = null;
+            if (rutaReanudacion == null) {
+                if (directorioEntrada == null) {
+                    directorioEntrada = Paths.get("input");
+                }
+                validarMarcosYProcesos(totalMarcos, numeroProcesos);
+                planificador = ConfiguracionPlanificador.crear(modoPlanificador, quantum, prioridades, numeroProcesos);
+            } else if (modoPlanificador != null || quantum != 0 || prioridades != null) {
+                throw new IllegalArgumentException("Al reanudar, el planificador se toma de la instantanea");
+            }
+            return new ParametrosSimulacion(totalMarcos, numeroProcesos, directorioEntrada, directorioSalida,
+                    rutaPuntoControl, intervaloPuntoControl, rutaReanudacion, planificador, registroDetallado);
+        }
+
+        ParametrosSimulacion resolverContra(Path base) {
+            return new ParametrosSimulacion(totalMarcos, numeroProcesos, resolver(base, directorioEntrada),
+                    resolver(base, directorioSalida), resolver(base, rutaPuntoControl), intervaloPuntoControl,
+                    resolver(base, rutaReanudacion), planificador, registroDetallado);
+        }
+
+        private static Path resolver(Path base, Path ruta) {
+            return ruta == null ? null : base.resolve(ruta).normalize();
+        }
+
+        ParametrosSimulacion completarConInstantanea(SimuladorMotor.EncabezadoInstantanea encabezado) {
+            if (totalMarcos > 0 && totalMarcos != encabezado.totalMarcos) {
+                throw new IllegalArgumentException("--frames no coincide con la instantanea (" + encabezado.totalMarcos + ")");
+            }
+            if (numeroProcesos > 0 && numeroProcesos != encabezado.numeroProcesos) {
+                throw new IllegalArgumentException("--processes no coincide con la instantanea (" + encabezado.numeroProcesos + ")");
+            }
+            Path entrada = directorioEntrada != null ? directorioEntrada : encabezado.directorioEntrada;
+            validarMarcosYProcesos(encabezado.totalMarcos, encabezado.numeroProcesos);
+            return new ParametrosSimulacion(encabezado.totalMarcos, encabezado.numeroProcesos, entrada, directorioSalida,
+                    rutaPuntoControl, intervaloPuntoControl, rutaReanudacion, encabezado.planificador, registroDetallado);
+        }
+
+        private static void validarMarcosYProcesos(int totalMarcos, int numeroProcesos) {
             if (totalMarcos <= 0) {
                 throw new IllegalArgumentException("--frames debe ser un entero positivo");
             }
@@ -117,7 +332,521 @@ public class App {
             if (totalMarcos % numeroProcesos != 0) {
                 throw new IllegalArgumentException("El numero total de marcos debe ser multiplo del numero de procesos");
             }
-            return new ParametrosSimulacion(totalMarcos, numeroProcesos, directorioEntrada, directorioSalida);
+        }
+    }
+
+    /**
+     * Mantiene una JVM caliente que atiende simulaciones por HTTP en 127.0.0.1. Cada parametro de la consulta
+     * equivale a una opcion de simulate (frames=8 es --frames 8); format elige text, csv o json.
+     */
+    private static final class ServidorSimulacion {
+        static final int PUERTO_POR_DEFECTO = 8765;
+        static final String CABECERA_DIRECTORIO = "X-Directorio-Trabajo";
+
+        private final int puerto;
+        private final int trabajadores;
+        private final IOKit.CacheTrazas cache;
+        /** Directorios de salida con un trabajo en curso; dos trabajos a la vez pisarian stats.csv. */
+        private final Set<Path> salidasOcupadas = ConcurrentHashMap.newKeySet();
+
+        private ServidorSimulacion(int puerto, int trabajadores, long maxReferenciasCache) {
+            this.puerto = puerto;
+            this.trabajadores = trabajadores;
+            this.cache = new IOKit.CacheTrazas(maxReferenciasCache);
+        }
+
+        static ServidorSimulacion desdeArgumentos(String[] argumentos) {
+            int puerto = PUERTO_POR_DEFECTO;
+            int trabajadores = Runtime.getRuntime().availableProcessors();
+            long maxReferenciasCache = IOKit.CacheTrazas.maxReferenciasPorDefecto();
+            for (int i = 1; i < argumentos.length; i++) {
+                String actual = argumentos[i];
+                if ("--port".equals(actual) && i + 1 < argumentos.length) {
+                    puerto = Integer.parseInt(argumentos[++i]);
+                } else if ("--workers".equals(actual) && i + 1 < argumentos.length) {
+                    trabajadores = Integer.parseInt(argumentos[++i]);
+                } else if ("--cache-refs".equals(actual) && i + 1 < argumentos.length) {
+                    maxReferenciasCache = Long.parseLong(argumentos[++i]);
+                } else {
+                    throw new IllegalArgumentException("Argumento desconocido o mal formado: " + actual);
+                }
+            }
+            if (puerto < 0 || puerto > 65535) {
+                throw new IllegalArgumentException("--port debe estar entre 0 y 65535");
+            }
+            if (trabajadores <= 0) {
+                throw new IllegalArgumentException("--workers debe ser un entero positivo");
+            }
+            if (maxReferenciasCache < 0) {
+                throw new IllegalArgumentException("--cache-refs debe ser un entero no negativo");
+            }
+            return new ServidorSimulacion(puerto, trabajadores, maxReferenciasCache);
+        }
+
+        void iniciar() throws IOException {
+            HttpServer servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto), 0);
+            servidor.createContext("/simulate", this::atender);
+            servidor.setExecutor(Executors.newFixedThreadPool(trabajadores));
+            servidor.start();
+            System.out.println("Servidor escuchando en http://127.0.0.1:" + servidor.getAddress().getPort()
+                    + "/simulate (workers=" + trabajadores + ")");
+        }
+
+        private void atender(HttpExchange intercambio) throws IOException {
+            int estado = 200;
+            String tipo = "text/plain; charset=utf-8";
+            String cuerpo;
+            try {
+                Map<String, String> consulta = parsearConsulta(intercambio.getRequestURI().getRawQuery());
+                String formato = consulta.getOrDefault("format", "text");
+                consulta.remove("format");
+                List<String> argumentos = new ArrayList<>();
+                argumentos.add("simulate");
+                for (Map.Entry<String, String> opcion : consulta.entrySet()) {
+                    argumentos.add("--" + opcion.getKey());
+                    argumentos.add(opcion.getValue());
+                }
+                String directorioCliente = intercambio.getRequestHeaders().getFirst(CABECERA_DIRECTORIO);
+                Path base = directorioCliente != null ? Paths.get(directorioCliente) : Paths.get("").toAbsolutePath();
+                ParametrosSimulacion parametros = ParametrosSimulacion.desdeArgumentos(argumentos.toArray(new String[0]))
+                        .resolverContra(base);
+                Path salidaNormalizada = parametros.directorioSalida.toAbsolutePath().normalize();
+                if (!salidasOcupadas.add(salidaNormalizada)) {
+                    estado = 409;
+                    throw new IllegalArgumentException("Ya hay una simulacion en curso con salida " + salidaNormalizada
+                            + "; use otro --out o espere a que termine");
+                }
+                List<Core.Proceso> procesos;
+                IOKit.UtilidadesLog.activarConsola(false);
+                try {
+                    procesos = simular(parametros, cache);
+                } finally {
+                    IOKit.UtilidadesLog.activarConsola(true);
+                    salidasOcupadas.remove(salidaNormalizada);
+                }
+                if ("csv".equals(formato)) {
+                    tipo = "text/csv; charset=utf-8";
+                    cuerpo = IOKit.EntradaSalidaProcesos.formatearCsvEstadisticas(procesos);
+                } else if ("json".equals(formato)) {
+                    tipo = "application/json; charset=utf-8";
+                    cuerpo = IOKit.EntradaSalidaProcesos.formatearJsonEstadisticas(procesos);
+                } else {
+                    cuerpo = formatearResumen(procesos);
+                }
+            } catch (Exception error) {
+                estado = estado == 200 ? 400 : estado;
+                cuerpo = String.valueOf(error.getMessage());
+            } catch (Throwable error) {
+                // Sin esto un OutOfMemoryError cerraria el intercambio sin respuesta y el cliente quedaria esperando.
+                estado = 500;
+                tipo = "text/plain; charset=utf-8";
+                cuerpo = "Error interno del servidor: " + error;
+            }
+            byte[] bytes = cuerpo.getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().set("Content-Type", tipo);
+            intercambio.sendResponseHeaders(estado, bytes.length);
+            try (OutputStream salida = intercambio.getResponseBody()) {
+                salida.write(bytes);
+            }
+        }
+
+        private static Map<String, String> parsearConsulta(String consulta) {
+            Map<String, String> valores = new LinkedHashMap<>();
+            if (consulta == null || consulta.isEmpty()) {
+                return valores;
+            }
+            for (String par : consulta.split("&")) {
+                int igual = par.indexOf('=');
+                if (igual <= 0) {
+                    throw new IllegalArgumentException("Parametro mal formado: " + par);
+                }
+                String clave = URLDecoder.decode(par.substring(0, igual), StandardCharsets.UTF_8);
+                valores.put(clave, URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8));
+            }
+            return valores;
+        }
+    }
+
+    /**
+     * Cliente delgado: si CASO2_SERVIDOR=host:puerto esta definido, simulate envia el trabajo al servidor y
+     * muestra el mismo resumen. Si el servidor no responde se simula localmente.
+     */
+    private static final class ClienteSimulacion {
+        static final String VARIABLE_SERVIDOR = "CASO2_SERVIDOR";
+
+        private ClienteSimulacion() {
+        }
+
+        static boolean ejecutarRemoto(String servidor, String[] argumentos) throws IOException {
+            StringBuilder consulta = new StringBuilder("format=text");
+            for (int i = 1; i + 1 < argumentos.length; i += 2) {
+                consulta.append('&').append(URLEncoder.encode(argumentos[i].substring(2), StandardCharsets.UTF_8))
+                        .append('=').append(URLEncoder.encode(argumentos[i + 1], StandardCharsets.UTF_8));
+            }
+            URL url = new URL("http://" + servidor + "/simulate?" + consulta);
+            HttpURLConnection conexion = (HttpURLConnection) url.openConnection();
+            conexion.setRequestProperty(ServidorSimulacion.CABECERA_DIRECTORIO, Paths.get("").toAbsolutePath().toString());
+            int estado;
+            try {
+                estado = conexion.getResponseCode();
+            } catch (ConnectException error) {
+                System.err.println("Servidor " + servidor + " no disponible, simulando localmente");
+                return false;
+            }
+            try (InputStream entrada = estado >= 400 ? conexion.getErrorStream() : conexion.getInputStream()) {
+                String cuerpo = new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+                if (estado != 200) {
+                    throw new IOException(cuerpo);
+                }
+                System.out.print(cuerpo);
+            } finally {
+                conexion.disconnect();
+            }
+            return true;
+        }
+    }
+
+    private static final class ParametrosImportacion {
+        final int tamanoPagina;
+        final List<Path> origenes;
+        final Path directorioSalida;
+        final boolean incluirInstrucciones;
+        final boolean conservarVpn;
+        final int totalMarcos;
+        final boolean sobrescribir;
+
+        private ParametrosImportacion(int tamanoPagina, List<Path> origenes, Path directorioSalida,
+                                      boolean incluirInstrucciones, boolean conservarVpn, int totalMarcos,
+                                      boolean sobrescribir) {
+            this.tamanoPagina = tamanoPagina;
+            this.origenes = origenes;
+            this.directorioSalida = directorioSalida;
+            this.incluirInstrucciones = incluirInstrucciones;
+            this.conservarVpn = conservarVpn;
+            this.totalMarcos = totalMarcos;
+            this.sobrescribir = sobrescribir;
+        }
+
+        static ParametrosImportacion desdeArgumentos(String[] argumentos) {
+            int tamanoPagina = -1;
+            List<Path> origenes = new ArrayList<>();
+            Path directorioSalida = null;
+            boolean incluirInstrucciones = false;
+            boolean conservarVpn = false;
+            int totalMarcos = -1;
+            boolean sobrescribir = false;
+            for (int i = 1; i < argumentos.length; i++) {
+                String actual = argumentos[i];
+                if ("--tp".equals(actual) && i + 1 < argumentos.length) {
+                    tamanoPagina = Integer.parseInt(argumentos[++i]);
+                } else if ("--out".equals(actual) && i + 1 < argumentos.length) {
+                    directorioSalida = Paths.get(argumentos[++i]);
+                } else if ("--frames".equals(actual) && i + 1 < argumentos.length) {
+                    totalMarcos = Integer.parseInt(argumentos[++i]);
+                } else if ("--include-instructions".equals(actual)) {
+                    incluirInstrucciones = true;
+                } else if ("--raw-vpn".equals(actual)) {
+                    conservarVpn = true;
+                } else if ("--overwrite".equals(actual)) {
+                    sobrescribir = true;
+                } else if (actual.startsWith("--")) {
+                    throw new IllegalArgumentException("Argumento desconocido o mal formado: " + actual);
+                } else {
+                    origenes.add(Paths.get(actual));
+                }
+            }
+            if (tamanoPagina <= 0) {
+                throw new IllegalArgumentException("--tp debe ser un entero positivo");
+            }
+            if (origenes.isEmpty()) {
+                throw new IllegalArgumentException("Falta al menos un archivo de traza para importar");
+            }
+            if (totalMarcos > 0 && totalMarcos % origenes.size() != 0) {
+                throw new IllegalArgumentException("El numero total de marcos debe ser multiplo del numero de procesos");
+            }
+            if (directorioSalida == null) {
+                directorioSalida = Paths.get(totalMarcos > 0 ? "output" : "input");
+            }
+            return new ParametrosImportacion(tamanoPagina, origenes, directorioSalida, incluirInstrucciones,
+                    conservarVpn, totalMarcos, sobrescribir);
+        }
+    }
+
+    private static final class ParametrosAnalisis {
+        static final int MAX_MARCOS_POR_DEFECTO = 256;
+
+        final int numeroProcesos;
+        final Path directorioEntrada;
+        final Path directorioSalida;
+        final double tasaMuestreo;
+        final int maxPaginasMuestreadas;
+        final int maxMarcos;
+
+        private ParametrosAnalisis(int numeroProcesos, Path directorioEntrada, Path directorioSalida,
+                                   double tasaMuestreo, int maxPaginasMuestreadas, int maxMarcos) {
+            this.numeroProcesos = numeroProcesos;
+            this.directorioEntrada = directorioEntrada;
+            this.directorioSalida = directorioSalida;
+            this.tasaMuestreo = tasaMuestreo;
+            this.maxPaginasMuestreadas = maxPaginasMuestreadas;
+            this.maxMarcos = maxMarcos;
+        }
+
+        static ParametrosAnalisis desdeArgumentos(String[] argumentos) {
+            int numeroProcesos = -1;
+            Path directorioEntrada = Paths.get("input");
+            Path directorioSalida = Paths.get("output");
+            double tasaMuestreo = -1.0;
+            int maxPaginasMuestreadas = 0;
+            int maxMarcos = 0;
+            for (int i = 1; i < argumentos.length; i++) {
+                String actual = argumentos[i];
+                if ("--processes".equals(actual) && i + 1 < argumentos.length) {
+                    numeroProcesos = Integer.parseInt(argumentos[++i]);
+                } else if ("--input".equals(actual) && i + 1 < argumentos.length) {
+                    directorioEntrada = Paths.get(argumentos[++i]);
+                } else if ("--out".equals(actual) && i + 1 < argumentos.length) {
+                    directorioSalida = Paths.get(argumentos[++i]);
+                } else if ("--rate".equals(actual) && i + 1 < argumentos.length) {
+                    tasaMuestreo = Double.parseDouble(argumentos[++i]);
+                } else if ("--sample-size".equals(actual) && i + 1 < argumentos.length) {
+                    maxPaginasMuestreadas = Integer.parseInt(argumentos[++i]);
+                } else if ("--max-frames".equals(actual) && i + 1 < argumentos.length) {
+                    maxMarcos = Integer.parseInt(argumentos[++i]);
+                } else {
+                    throw new IllegalArgumentException("Argumento desconocido o mal formado: " + actual);
+                }
+            }
+            if (tasaMuestreo >= 0 && maxPaginasMuestreadas > 0) {
+                throw new IllegalArgumentException("--rate y --sample-size son excluyentes");
+            }
+            if (maxPaginasMuestreadas < 0) {
+                throw new IllegalArgumentException("--sample-size debe ser un entero positivo");
+            }
+            if (maxPaginasMuestreadas == 0) {
+                if (tasaMuestreo < 0) {
+                    tasaMuestreo = AnalizadorMuestreo.TASA_POR_DEFECTO;
+                }
+                if (tasaMuestreo <= 0 || tasaMuestreo > 1) {
+                    throw new IllegalArgumentException("--rate debe estar en (0, 1]");
+                }
+            } else {
+                tasaMuestreo = 1.0;
+            }
+            if (maxMarcos < 0) {
+                throw new IllegalArgumentException("--max-frames debe ser un entero positivo");
+            }
+            return new ParametrosAnalisis(numeroProcesos, directorioEntrada, directorioSalida,
+                    tasaMuestreo, maxPaginasMuestreadas, maxMarcos);
+        }
+    }
+
+    /**
+     * Curva aproximada de tasa de fallos vs. marcos con muestreo espacial estilo SHARDS: una pagina se muestrea
+     * si hash(vpn) mod P < T, y las distancias LRU entre paginas muestreadas se escalan por 1/R con R = T/P.
+     * Con --sample-size el umbral baja cada vez que el conjunto muestreado excede el limite (SHARDS de tamano fijo).
+     * El error se estima con la dispersion entre subconjuntos disjuntos del espacio de hash.
+     */
+    private static final class AnalizadorMuestreo {
+        static final double TASA_POR_DEFECTO = 0.01;
+        private static final int GRUPOS_ERROR = 4;
+
+        private AnalizadorMuestreo() {
+        }
+
+        static Core.CurvaFallos analizar(int pid, IOKit.LectorTraza lector, int maxMarcos, double tasaMuestreo,
+                                         int maxPaginasMuestreadas) throws IOException {
+            CurvaShards principal = new CurvaShards(maxMarcos, tasaMuestreo, maxPaginasMuestreadas, 1);
+            CurvaShards[] grupos = new CurvaShards[GRUPOS_ERROR];
+            int maxPorGrupo = maxPaginasMuestreadas == 0 ? 0 : Math.max(1, maxPaginasMuestreadas / GRUPOS_ERROR);
+            for (int g = 0; g < GRUPOS_ERROR; g++) {
+                grupos[g] = new CurvaShards(maxMarcos, tasaMuestreo, maxPorGrupo, GRUPOS_ERROR);
+            }
+            long totalReferencias = 0;
+            int vpn;
+            while ((vpn = lector.siguienteVpn()) >= 0) {
+                totalReferencias++;
+                long hash = mezclar(vpn);
+                principal.registrar(vpn, hash);
+                grupos[(int) (hash >>> 62)].registrar(vpn, hash);
+            }
+
+            double[] curva = principal.curva(totalReferencias);
+            double[][] curvasGrupos = new double[GRUPOS_ERROR][];
+            for (int g = 0; g < GRUPOS_ERROR; g++) {
+                curvasGrupos[g] = grupos[g].curva(totalReferencias);
+            }
+            // Con R = 1 no hay error de muestreo; la correccion de poblacion finita lo lleva a cero.
+            double correccionFinita = Math.max(0.0, 1.0 - principal.tasa());
+            double[] errores = new double[maxMarcos];
+            for (int c = 0; c < maxMarcos; c++) {
+                double media = 0.0;
+                for (double[] curvaGrupo : curvasGrupos) {
+                    media += curvaGrupo[c];
+                }
+                media /= GRUPOS_ERROR;
+                double varianza = 0.0;
+                for (double[] curvaGrupo : curvasGrupos) {
+                    double diferencia = curvaGrupo[c] - media;
+                    varianza += diferencia * diferencia;
+                }
+                varianza /= GRUPOS_ERROR - 1;
+                errores[c] = Math.sqrt(varianza / GRUPOS_ERROR * correccionFinita);
+            }
+            return new Core.CurvaFallos(pid, totalReferencias, principal.referenciasMuestreadas, principal.tasa(),
+                    curva, errores);
+        }
+
+        private static long mezclar(int vpn) {
+            long x = vpn * 0x9E3779B97F4A7C15L;
+            x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+            x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+            return x ^ (x >>> 31);
+        }
+    }
+
+    private static final class CurvaShards {
+        private static final int BITS_MODULO = 24;
+        private static final long MODULO = 1L << BITS_MODULO;
+        private static final int CAPACIDAD_MINIMA = 1024;
+
+        private final int maxMarcos;
+        private final int maxPaginas;
+        private final int fraccionEspacio;
+        private final Core.MapaEnteros ultimoTiempo = new Core.MapaEnteros();
+        private final Core.MonticuloLargos porHash;
+        private final double[] histograma;
+        private double fueraDeRango;
+        private double frios;
+        private double total;
+        private long umbral;
+        private final boolean ajustarTotal;
+        private int[] arbol;
+        private int tiempo;
+        long referenciasMuestreadas;
+
+        CurvaShards(int maxMarcos, double tasaMuestreo, int maxPaginas, int fraccionEspacio) {
+            this.maxMarcos = maxMarcos;
+            this.maxPaginas = maxPaginas;
+            this.fraccionEspacio = fraccionEspacio;
+            this.histograma = new double[maxMarcos];
+            this.umbral = Math.max(1L, Math.round(tasaMuestreo * MODULO));
+            this.ajustarTotal = maxPaginas == 0;
+            this.porHash = maxPaginas == 0 ? null : new Core.MonticuloLargos();
+            this.arbol = new int[CAPACIDAD_MINIMA + 1];
+        }
+
+        double tasa() {
+            return (double) umbral / MODULO / fraccionEspacio;
+        }
+
+        void registrar(int vpn, long hash) {
+            long valorHash = hash & (MODULO - 1);
+            if (valorHash >= umbral) {
+                return;
+            }
+            referenciasMuestreadas++;
+            total++;
+            int anterior = ultimoTiempo.obtener(vpn);
+            if (anterior == Core.SIN_VALOR) {
+                frios++;
+                if (porHash != null) {
+                    porHash.agregar((valorHash << 32) | vpn);
+                }
+            } else {
+                int distancia = ultimoTiempo.tamano() - prefijo(anterior);
+                double escalada = distancia / tasa();
+                if (escalada < maxMarcos) {
+                    histograma[(int) escalada]++;
+                } else {
+                    fueraDeRango++;
+                }
+                ultimoTiempo.eliminar(vpn);
+                actualizar(anterior, -1);
+            }
+            if (tiempo == arbol.length - 1) {
+                compactar();
+            }
+            tiempo++;
+            ultimoTiempo.poner(vpn, tiempo);
+            actualizar(tiempo, 1);
+            if (porHash != null && ultimoTiempo.tamano() > maxPaginas) {
+                reducirUmbral();
+            }
+        }
+
+        /**
+         * Tasa de fallos para 1..maxMarcos marcos. Una referencia con distancia escalada d acierta con mas de d marcos.
+         */
+        double[] curva(long totalReferencias) {
+            double totalAjustado = total;
+            if (ajustarTotal) {
+                // SHARDS_adj: la diferencia entre muestras esperadas y observadas va al balde de distancia 0.
+                totalAjustado += totalReferencias * tasa() - referenciasMuestreadas;
+            }
+            double[] tasas = new double[maxMarcos];
+            if (totalAjustado <= 0) {
+                return tasas;
+            }
+            double fallos = frios + fueraDeRango;
+            for (int marcos = maxMarcos; marcos >= 1; marcos--) {
+                if (marcos < maxMarcos) {
+                    fallos += histograma[marcos];
+                }
+                tasas[marcos - 1] = Math.max(0.0, Math.min(1.0, fallos / totalAjustado));
+            }
+            return tasas;
+        }
+
+        private void reducirUmbral() {
+            double tasaAnterior = tasa();
+            long nuevoUmbral = porHash.maximo() >>> 32;
+            while (!porHash.estaVacio() && (porHash.maximo() >>> 32) == nuevoUmbral) {
+                int vpn = (int) (porHash.extraerMaximo() & 0xFFFFFFFFL);
+                int instante = ultimoTiempo.eliminar(vpn);
+                actualizar(instante, -1);
+            }
+            umbral = nuevoUmbral;
+            double factor = tasa() / tasaAnterior;
+            for (int i = 0; i < histograma.length; i++) {
+                histograma[i] *= factor;
+            }
+            fueraDeRango *= factor;
+            frios *= factor;
+            total *= factor;
+        }
+
+        private void compactar() {
+            int[] paginaPorTiempo = new int[tiempo + 1];
+            Arrays.fill(paginaPorTiempo, Core.SIN_VALOR);
+            for (int posicion = 0; posicion < ultimoTiempo.capacidad(); posicion++) {
+                if (ultimoTiempo.claveEn(posicion) != Core.SIN_VALOR) {
+                    paginaPorTiempo[ultimoTiempo.valorEn(posicion)] = ultimoTiempo.claveEn(posicion);
+                }
+            }
+            arbol = new int[Math.max(CAPACIDAD_MINIMA, ultimoTiempo.tamano() * 2) + 1];
+            tiempo = 0;
+            for (int instante = 1; instante < paginaPorTiempo.length; instante++) {
+                if (paginaPorTiempo[instante] != Core.SIN_VALOR) {
+                    tiempo++;
+                    ultimoTiempo.poner(paginaPorTiempo[instante], tiempo);
+                    actualizar(tiempo, 1);
+                }
+            }
+        }
+
+        private void actualizar(int instante, int delta) {
+            for (int i = instante; i < arbol.length; i += i & -i) {
+                arbol[i] += delta;
+            }
+        }
+
+        private int prefijo(int instante) {
+            int suma = 0;
+            for (int i = instante; i > 0; i -= i & -i) {
+                suma += arbol[i];
+            }
+            return suma;
         }
     }
 
@@ -156,153 +885,567 @@ public class App {
         }
     }
 
-    private static final class SimuladorMotor {
+    /**
+     * Modo de planificacion de la simulacion. rr atiende una referencia por turno; quantum hasta N referencias;
+     * until-fault hasta el siguiente fallo; priority elige siempre la prioridad mas alta (turno circular entre
+     * iguales) con quantum opcional. En todos los modos un fallo de pagina termina el turno.
+     */
+    static final class ConfiguracionPlanificador {
+        static final String ROUND_ROBIN = "rr";
+        static final String QUANTUM = "quantum";
+        static final String HASTA_FALLO = "until-fault";
+        static final String PRIORIDAD = "priority";
+
+        final String modo;
+        final int quantum;
+        private final int[] prioridades;
+
+        private ConfiguracionPlanificador(String modo, int quantum, int[] prioridades) {
+            this.modo = modo;
+            this.quantum = quantum;
+            this.prioridades = prioridades;
+        }
+
+        static ConfiguracionPlanificador porDefecto() {
+            return new ConfiguracionPlanificador(ROUND_ROBIN, 1, null);
+        }
+
+        static ConfiguracionPlanificador crear(String modo, int quantum, int[] prioridades, int numeroProcesos) {
+            if (modo == null) {
+                // Las prioridades pesan mas que el quantum: en modo priority el quantum es opcional.
+                modo = prioridades != null ? PRIORIDAD : quantum > 0 ? QUANTUM : ROUND_ROBIN;
+            }
+            if (quantum < 0) {
+                throw new IllegalArgumentException("--quantum debe ser un entero positivo");
+            }
+            if (prioridades != null && !PRIORIDAD.equals(modo)) {
+                throw new IllegalArgumentException("--priorities solo aplica con --scheduler priority");
+            }
+            if (ROUND_ROBIN.equals(modo) || HASTA_FALLO.equals(modo)) {
+                if (quantum != 0) {
+                    throw new IllegalArgumentException("--quantum no aplica con --scheduler " + modo);
+                }
+                return new ConfiguracionPlanificador(modo, ROUND_ROBIN.equals(modo) ? 1 : 0, null);
+            }
+            if (QUANTUM.equals(modo)) {
+                if (quantum <= 0) {
+                    throw new IllegalArgumentException("--scheduler quantum requiere --quantum");
+                }
+                return new ConfiguracionPlanificador(modo, quantum, null);
+            }
+            if (PRIORIDAD.equals(modo)) {
+                int[] valores = prioridades != null ? prioridades : new int[numeroProcesos];
+                if (valores.length != numeroProcesos) {
+                    throw new IllegalArgumentException("--priorities debe tener un valor por proceso");
+                }
+                return new ConfiguracionPlanificador(modo, quantum, valores);
+            }
+            throw new IllegalArgumentException("Planificador desconocido: " + modo);
+        }
+
+        /**
+         * Maximo de referencias atendidas en un turno; 0 en la configuracion significa sin limite.
+         */
+        int referenciasPorTurno() {
+            return quantum > 0 ? quantum : Integer.MAX_VALUE;
+        }
+
+        boolean registroPorReferencia() {
+            return ROUND_ROBIN.equals(modo);
+        }
+
+        Planificador crearPlanificador() {
+            return PRIORIDAD.equals(modo) ? new PlanificadorPrioridad(prioridades) : new PlanificadorCircular();
+        }
+
+        void escribir(DataOutputStream salida) throws IOException {
+            salida.writeUTF(modo);
+            salida.writeInt(quantum);
+            salida.writeInt(prioridades == null ? -1 : prioridades.length);
+            if (prioridades != null) {
+                for (int prioridad : prioridades) {
+                    salida.writeInt(prioridad);
+                }
+            }
+        }
+
+        static ConfiguracionPlanificador leer(DataInputStream entrada) throws IOException {
+            String modo = entrada.readUTF();
+            int quantum = entrada.readInt();
+            int totalPrioridades = entrada.readInt();
+            int[] prioridades = null;
+            if (totalPrioridades >= 0) {
+                prioridades = new int[totalPrioridades];
+                for (int i = 0; i < totalPrioridades; i++) {
+                    prioridades[i] = entrada.readInt();
+                }
+            }
+            return new ConfiguracionPlanificador(modo, quantum, prioridades);
+        }
+    }
+
+    private interface Planificador {
+        boolean estaVacio();
+
+        Core.Proceso siguiente();
+
+        void devolver(Core.Proceso proceso);
+
+        /**
+         * Procesos en espera en el orden en que serian atendidos.
+         */
+        List<Core.Proceso> pendientes();
+    }
+
+    private static final class PlanificadorCircular implements Planificador {
+        private final Deque<Core.Proceso> cola = new ArrayDeque<>();
+
+        @Override
+        public boolean estaVacio() {
+            return cola.isEmpty();
+        }
+
+        @Override
+        public Core.Proceso siguiente() {
+            return cola.pollFirst();
+        }
+
+        @Override
+        public void devolver(Core.Proceso proceso) {
+            cola.offerLast(proceso);
+        }
+
+        @Override
+        public List<Core.Proceso> pendientes() {
+            return new ArrayList<>(cola);
+        }
+    }
+
+    private static final class PlanificadorPrioridad implements Planificador {
+        private final int[] nivelPorPid;
+        private final Deque<Core.Proceso>[] niveles;
+        private int pendientes;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        PlanificadorPrioridad(int[] prioridades) {
+            int[] distintas = Arrays.stream(prioridades).distinct().sorted().toArray();
+            this.niveles = new Deque[distintas.length];
+            for (int i = 0; i < niveles.length; i++) {
+                niveles[i] = new ArrayDeque<>();
+            }
+            this.nivelPorPid = new int[prioridades.length];
+            for (int pid = 0; pid < prioridades.length; pid++) {
+                // Nivel 0 es la prioridad mas alta.
+                nivelPorPid[pid] = distintas.length - 1 - Arrays.binarySearch(distintas, prioridades[pid]);
+            }
+        }
+
+        @Override
+        public boolean estaVacio() {
+            return pendientes == 0;
+        }
+
+        @Override
+        public Core.Proceso siguiente() {
+            for (Deque<Core.Proceso> nivel : niveles) {
+                if (!nivel.isEmpty()) {
+                    pendientes--;
+                    return nivel.pollFirst();
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void devolver(Core.Proceso proceso) {
+            niveles[nivelPorPid[proceso.pid]].offerLast(proceso);
+            pendientes++;
+        }
+
+        @Override
+        public List<Core.Proceso> pendientes() {
+            List<Core.Proceso> orden = new ArrayList<>(pendientes);
+            for (Deque<Core.Proceso> nivel : niveles) {
+                orden.addAll(nivel);
+            }
+            return orden;
+        }
+    }
+
+    static final class SimuladorMotor {
+        private static final int ACIERTO = 0;
+        private static final int FALLO_CON_MARCO_LIBRE = 1;
+        private static final int FALLO_CON_REEMPLAZO = 2;
+        private static final int MAGIA_INSTANTANEA = 0x43325350;
+        private static final int VERSION_INSTANTANEA = 3;
+
         private final List<Core.Proceso> procesos;
-        private final List<Core.Marco> marcos;
+        private final Core.TablaMarcos marcos;
         private final int numeroProcesos;
+        private final Path directorioEntrada;
         private final BufferedWriter bitacora;
+        private final ConfiguracionPlanificador configuracionPlanificador;
+        private final Planificador planificador;
+        private int ultimoDespachado = Core.SIN_VALOR;
+        private boolean registroDetallado = true;
         private long relojGlobal;
+        /** Accesos resueltos, contando los reintentos tras un fallo; define el intervalo entre puntos de control. */
+        private long pasosSimulados;
+        private IOKit.EscritorInstantaneas escritorInstantaneas;
+        private long intervaloPuntoControl;
+        private long proximoPuntoControl;
+        private long[] huellasTrazas;
+
+        SimuladorMotor(List<Core.Proceso> procesos, int totalMarcos, int numeroProcesos, Path directorioEntrada,
+                       ConfiguracionPlanificador configuracionPlanificador, BufferedWriter bitacora) throws IOException {
+            this(procesos, new Core.TablaMarcos(totalMarcos), numeroProcesos, directorioEntrada, configuracionPlanificador, bitacora);
+            for (Core.Proceso proceso : procesos) {
+                planificador.devolver(proceso);
+            }
+            inicializarMarcos();
+        }
 
-        SimuladorMotor(List<Core.Proceso> procesos, int totalMarcos, int numeroProcesos, BufferedWriter bitacora) throws IOException {
+        private SimuladorMotor(List<Core.Proceso> procesos, Core.TablaMarcos marcos, int numeroProcesos,
+                               Path directorioEntrada, ConfiguracionPlanificador configuracionPlanificador,
+                               BufferedWriter bitacora) {
             this.procesos = procesos;
             this.numeroProcesos = numeroProcesos;
+            this.directorioEntrada = directorioEntrada;
             this.bitacora = bitacora;
-            this.marcos = new ArrayList<>(totalMarcos);
-            for (int i = 0; i < totalMarcos; i++) {
-                Core.Marco marco = new Core.Marco(i);
-                marco.limpiar();
-                marcos.add(marco);
+            this.marcos = marcos;
+            this.configuracionPlanificador = configuracionPlanificador;
+            this.planificador = configuracionPlanificador.crearPlanificador();
+        }
+
+        /**
+         * Con registro detallado se escribe cada turno y referencia en la bitacora. Sin el, el ciclo solo registra
+         * inicio y fin de procesos y no crea objetos por referencia.
+         */
+        void configurarRegistroDetallado(boolean detallado) {
+            this.registroDetallado = detallado;
+        }
+
+        void configurarPuntosControl(IOKit.EscritorInstantaneas escritor, long intervalo) {
+            this.escritorInstantaneas = escritor;
+            this.intervaloPuntoControl = intervalo;
+            this.proximoPuntoControl = pasosSimulados + intervalo;
+            this.huellasTrazas = new long[procesos.size()];
+            for (int indice = 0; indice < procesos.size(); indice++) {
+                huellasTrazas[indice] = huellaTraza(procesos.get(indice));
             }
-            inicializarMarcos();
+        }
+
+        /**
+         * CRC32 de las referencias (pagina, desplazamiento, operacion) del proceso. Se guarda en la instantanea para
+         * no reanudar sobre una traza distinta con el mismo NR.
+         */
+        static long huellaTraza(Core.Proceso proceso) {
+            CRC32 crc = new CRC32();
+            ByteBuffer bloque = ByteBuffer.allocate(Integer.BYTES * 2 + Character.BYTES);
+            for (Core.Referencia referencia : proceso.referencias) {
+                bloque.clear();
+                bloque.putInt(referencia.numeroPagina).putInt(referencia.desplazamiento).putChar(referencia.operacion);
+                crc.update(bloque.array(), 0, bloque.position());
+            }
+            return crc.getValue();
         }
 
         void ejecutar() throws IOException {
-            Deque<Core.Proceso> cola = new ArrayDeque<>(procesos);
-            while (!cola.isEmpty()) {
-                Core.Proceso proceso = cola.pollFirst();
+            boolean registroPorTurno = registroDetallado;
+            boolean registroPorReferencia = registroDetallado && configuracionPlanificador.registroPorReferencia();
+            int referenciasPorTurno = configuracionPlanificador.referenciasPorTurno();
+            while (!planificador.estaVacio()) {
+                Core.Proceso proceso = planificador.siguiente();
                 if (!proceso.tieneReferenciasPendientes()) {
-                    finalizarProceso(proceso, cola);
+                    finalizarProceso(proceso);
                     continue;
                 }
-                Core.Referencia referencia = proceso.referenciaActual();
-                IOKit.UtilidadesLog.imprimir(bitacora, "Turno proc: " + proceso.pid);
-                IOKit.UtilidadesLog.imprimir(bitacora, "PROC " + proceso.pid + " analizando linea_: " + proceso.indiceReferenciaActual);
-                ResultadoAcceso resultado = resolverAcceso(proceso, referencia);
-                if (resultado.esAcierto) {
-                    if (!proceso.huboFalloEnReferenciaActual) { proceso.estadisticas.aciertos++; }
-                    proceso.hitsEvento++;
-                    proceso.indiceReferenciaActual++;
-                    proceso.huboFalloEnReferenciaActual = false;
-                    IOKit.UtilidadesLog.imprimir(bitacora, "PROC " + proceso.pid + " hits: " + proceso.hitsEvento);
-                } else {
-                    proceso.estadisticas.fallos++;
-                    proceso.estadisticas.swaps += resultado.swapsGenerados;
-                    proceso.huboFalloEnReferenciaActual = true;
-                    IOKit.UtilidadesLog.imprimir(bitacora, "PROC " + proceso.pid + " falla de pag: " + proceso.estadisticas.fallos);
+                if (ultimoDespachado != Core.SIN_VALOR && ultimoDespachado != proceso.pid) {
+                    proceso.estadisticas.cambiosContexto++;
+                }
+                ultimoDespachado = proceso.pid;
+                if (registroPorTurno) {
+                    IOKit.UtilidadesLog.imprimir(bitacora, "Turno proc: " + proceso.pid);
+                }
+                boolean huboFallo = false;
+                for (int atendidas = 0; atendidas < referenciasPorTurno && proceso.tieneReferenciasPendientes() && !huboFallo; atendidas++) {
+                    if (registroPorReferencia) {
+                        IOKit.UtilidadesLog.imprimir(bitacora, "PROC " + proceso.pid + " analizando linea_: " + proceso.indiceReferenciaActual);
+                    }
+                    int swapsGenerados = resolverAcceso(proceso, proceso.referenciaActual());
+                    pasosSimulados++;
+                    if (swapsGenerados == ACIERTO) {
+                        if (!proceso.huboFalloEnReferenciaActual) { proceso.estadisticas.aciertos++; }
+                        proceso.hitsEvento++;
+                        proceso.indiceReferenciaActual++;
+                        proceso.huboFalloEnReferenciaActual = false;
+                        if (registroPorReferencia) {
+                            IOKit.UtilidadesLog.imprimir(bitacora, "PROC " + proceso.pid + " hits: " + proceso.hitsEvento);
+                        }
+                    } else {
+                        proceso.estadisticas.fallos++;
+                        proceso.estadisticas.swaps += swapsGenerados;
+                        proceso.huboFalloEnReferenciaActual = true;
+                        huboFallo = true;
+                    }
+                }
+                if (registroPorTurno) {
+                    if (!registroPorReferencia) {
+                        IOKit.UtilidadesLog.imprimir(bitacora, "PROC " + proceso.pid + " hits: " + proceso.hitsEvento);
+                    }
+                    if (huboFallo) {
+                        IOKit.UtilidadesLog.imprimir(bitacora, "PROC " + proceso.pid + " falla de pag: " + proceso.estadisticas.fallos);
+                    }
+                    IOKit.UtilidadesLog.imprimir(bitacora, "PROC " + proceso.pid + " envejecimiento");
                 }
-                IOKit.UtilidadesLog.imprimir(bitacora, "PROC " + proceso.pid + " envejecimiento");
                 if (!proceso.tieneReferenciasPendientes()) {
                     proceso.finalizado = true;
-                    finalizarProceso(proceso, cola);
+                    finalizarProceso(proceso);
                 } else {
-                    cola.offerLast(proceso);
+                    planificador.devolver(proceso);
+                }
+                // La instantanea solo se toma entre turnos; si la escritura anterior sigue en curso se reintenta en el
+                // siguiente turno sin mover el umbral.
+                if (escritorInstantaneas != null && pasosSimulados >= proximoPuntoControl
+                        && escritorInstantaneas.puedeProgramar()) {
+                    escritorInstantaneas.programar(capturarEstado());
+                    proximoPuntoControl = pasosSimulados + intervaloPuntoControl;
+                }
+            }
+        }
+
+        /**
+         * Serializa el estado completo del motor: marcos, tablas de paginas, indice y estadisticas por proceso,
+         * planificador y orden de su cola de turnos, y reloj global. Las referencias no se copian; se releen de la entrada.
+         */
+        byte[] capturarEstado() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream salida = new DataOutputStream(bytes)) {
+                salida.writeInt(MAGIA_INSTANTANEA);
+                salida.writeInt(VERSION_INSTANTANEA);
+                salida.writeUTF(directorioEntrada.toAbsolutePath().toString());
+                salida.writeInt(marcos.total());
+                salida.writeInt(numeroProcesos);
+                configuracionPlanificador.escribir(salida);
+                salida.writeLong(relojGlobal);
+                salida.writeLong(pasosSimulados);
+                salida.writeInt(ultimoDespachado);
+                for (int idMarco = 0; idMarco < marcos.total(); idMarco++) {
+                    salida.writeInt(marcos.pidDueno[idMarco]);
+                    salida.writeInt(marcos.vpnCargada[idMarco]);
+                    salida.writeLong(marcos.ultimaReferencia[idMarco]);
+                }
+                salida.writeInt(procesos.size());
+                for (int indice = 0; indice < procesos.size(); indice++) {
+                    Core.Proceso proceso = procesos.get(indice);
+                    salida.writeInt(proceso.pid);
+                    salida.writeInt(proceso.totalReferencias);
+                    salida.writeLong(huellasTrazas[indice]);
+                    salida.writeInt(proceso.indiceReferenciaActual);
+                    salida.writeBoolean(proceso.finalizado);
+                    salida.writeBoolean(proceso.huboFalloEnReferenciaActual);
+                    salida.writeLong(proceso.hitsEvento);
+                    salida.writeLong(proceso.estadisticas.aciertos);
+                    salida.writeLong(proceso.estadisticas.fallos);
+                    salida.writeLong(proceso.estadisticas.swaps);
+                    salida.writeLong(proceso.estadisticas.cambiosContexto);
+                    Core.ListaEnteros asignados = proceso.marcosAsignados;
+                    salida.writeInt(asignados.tamano());
+                    for (int i = 0; i < asignados.tamano(); i++) {
+                        salida.writeInt(asignados.obtener(i));
+                    }
+                    proceso.tablaPaginas.escribirMapeo(salida);
+                }
+                List<Core.Proceso> pendientes = planificador.pendientes();
+                salida.writeInt(pendientes.size());
+                for (Core.Proceso proceso : pendientes) {
+                    salida.writeInt(proceso.pid);
                 }
             }
+            return bytes.toByteArray();
+        }
+
+        static EncabezadoInstantanea leerEncabezado(byte[] instantanea) throws IOException {
+            try (DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(instantanea))) {
+                return leerEncabezado(entrada);
+            }
+        }
+
+        static SimuladorMotor desdeInstantanea(List<Core.Proceso> procesos, Path directorioEntrada, byte[] instantanea,
+                                              BufferedWriter bitacora) throws IOException {
+            try (DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(instantanea))) {
+                EncabezadoInstantanea encabezado = leerEncabezado(entrada);
+                Core.TablaMarcos marcos = new Core.TablaMarcos(encabezado.totalMarcos);
+                SimuladorMotor motor = new SimuladorMotor(procesos, marcos, encabezado.numeroProcesos, directorioEntrada,
+                        encabezado.planificador, bitacora);
+                motor.relojGlobal = entrada.readLong();
+                motor.pasosSimulados = entrada.readLong();
+                motor.ultimoDespachado = entrada.readInt();
+                for (int idMarco = 0; idMarco < marcos.total(); idMarco++) {
+                    marcos.pidDueno[idMarco] = entrada.readInt();
+                    marcos.vpnCargada[idMarco] = entrada.readInt();
+                    marcos.ultimaReferencia[idMarco] = entrada.readLong();
+                }
+                int totalProcesos = entrada.readInt();
+                if (totalProcesos != procesos.size()) {
+                    throw new IOException("La instantanea tiene " + totalProcesos + " procesos pero la entrada tiene " + procesos.size());
+                }
+                for (int indice = 0; indice < totalProcesos; indice++) {
+                    Core.Proceso proceso = motor.buscarProceso(entrada.readInt());
+                    int totalReferencias = entrada.readInt();
+                    if (totalReferencias != proceso.totalReferencias) {
+                        throw new IOException("El proceso " + proceso.pid + " no coincide con la instantanea: NR="
+                                + proceso.totalReferencias + " vs " + totalReferencias);
+                    }
+                    if (entrada.readLong() != huellaTraza(proceso)) {
+                        throw new IOException("La traza del proceso " + proceso.pid
+                                + " cambio desde que se tomo la instantanea; no se puede reanudar");
+                    }
+                    proceso.indiceReferenciaActual = entrada.readInt();
+                    proceso.finalizado = entrada.readBoolean();
+                    proceso.huboFalloEnReferenciaActual = entrada.readBoolean();
+                    proceso.hitsEvento = entrada.readLong();
+                    proceso.estadisticas.aciertos = entrada.readLong();
+                    proceso.estadisticas.fallos = entrada.readLong();
+                    proceso.estadisticas.swaps = entrada.readLong();
+                    proceso.estadisticas.cambiosContexto = entrada.readLong();
+                    proceso.marcosAsignados.limpiar();
+                    int totalAsignados = entrada.readInt();
+                    for (int i = 0; i < totalAsignados; i++) {
+                        proceso.marcosAsignados.agregar(entrada.readInt());
+                    }
+                    int totalMapeos = entrada.readInt();
+                    for (int i = 0; i < totalMapeos; i++) {
+                        int vpn = entrada.readInt();
+                        proceso.tablaPaginas.registrarMapeo(vpn, entrada.readInt());
+                    }
+                }
+                int tamanoCola = entrada.readInt();
+                for (int i = 0; i < tamanoCola; i++) {
+                    motor.planificador.devolver(motor.buscarProceso(entrada.readInt()));
+                }
+                return motor;
+            }
+        }
+
+        private static EncabezadoInstantanea leerEncabezado(DataInputStream entrada) throws IOException {
+            if (entrada.readInt() != MAGIA_INSTANTANEA) {
+                throw new IOException("El archivo no es una instantanea de simulacion");
+            }
+            int version = entrada.readInt();
+            if (version != VERSION_INSTANTANEA) {
+                throw new IOException("Version de instantanea no soportada: " + version + " (se espera "
+                        + VERSION_INSTANTANEA + "); vuelva a simular desde el inicio");
+            }
+            Path directorioEntrada = Paths.get(entrada.readUTF());
+            int totalMarcos = entrada.readInt();
+            int numeroProcesos = entrada.readInt();
+            ConfiguracionPlanificador planificador = ConfiguracionPlanificador.leer(entrada);
+            return new EncabezadoInstantanea(directorioEntrada, totalMarcos, numeroProcesos, planificador);
+        }
+
+        private Core.Proceso buscarProceso(int pid) throws IOException {
+            for (Core.Proceso proceso : procesos) {
+                if (proceso.pid == pid) {
+                    return proceso;
+                }
+            }
+            throw new IOException("La instantanea referencia un proceso inexistente: " + pid);
         }
 
         private void inicializarMarcos() throws IOException {
-            int marcosPorProceso = marcos.size() / numeroProcesos;
-            int indiceMarco = 0;
+            int marcosPorProceso = marcos.total() / numeroProcesos;
+            int idMarco = 0;
             for (Core.Proceso proceso : procesos) {
-                proceso.marcosAsignados.clear();
+                proceso.marcosAsignados.limpiar();
                 for (int i = 0; i < marcosPorProceso; i++) {
-                    Core.Marco marco = marcos.get(indiceMarco++);
-                    marco.limpiar();
-                    marco.pidDueno = proceso.pid;
-                    proceso.marcosAsignados.add(marco.idMarco);
-                    IOKit.UtilidadesLog.imprimir(bitacora, "Proceso " + proceso.pid + ": recibe marco " + marco.idMarco);
+                    marcos.limpiar(idMarco);
+                    marcos.pidDueno[idMarco] = proceso.pid;
+                    proceso.marcosAsignados.agregar(idMarco);
+                    IOKit.UtilidadesLog.imprimir(bitacora, "Proceso " + proceso.pid + ": recibe marco " + idMarco);
+                    idMarco++;
                 }
             }
         }
 
-        private ResultadoAcceso resolverAcceso(Core.Proceso proceso, Core.Referencia referencia) throws IOException {
-            Integer idMarco = proceso.tablaPaginas.obtenerMarcoParaVpn(referencia.numeroPagina);
-            if (idMarco != null) {
-                Core.Marco marco = marcos.get(idMarco);
-                actualizarUsoMarco(marco);
-                return ResultadoAcceso.acierto();
+        /**
+         * Devuelve {@link #ACIERTO} o la cantidad de swaps generados por el fallo.
+         */
+        private int resolverAcceso(Core.Proceso proceso, Core.Referencia referencia) {
+            int idMarco = proceso.tablaPaginas.obtenerMarcoParaVpn(referencia.numeroPagina);
+            if (idMarco != Core.SIN_VALOR) {
+                actualizarUsoMarco(idMarco);
+                return ACIERTO;
             }
 
-            Core.Marco marcoLibre = buscarMarcoLibre(proceso);
-            if (marcoLibre != null) {
+            int marcoLibre = buscarMarcoLibre(proceso);
+            if (marcoLibre != Core.SIN_VALOR) {
                 cargarPaginaEnMarco(proceso, referencia, marcoLibre);
-                return ResultadoAcceso.fallo(1);
+                return FALLO_CON_MARCO_LIBRE;
             }
 
-            Core.Marco victima = seleccionarMarcoVictima(proceso);
-            if (victima.vpnCargada != null) {
-                proceso.tablaPaginas.eliminarMapeo(victima.vpnCargada);
+            int victima = seleccionarMarcoVictima(proceso);
+            if (!marcos.estaLibre(victima)) {
+                proceso.tablaPaginas.eliminarMapeo(marcos.vpnCargada[victima]);
             }
             cargarPaginaEnMarco(proceso, referencia, victima);
-            return ResultadoAcceso.fallo(2);
+            return FALLO_CON_REEMPLAZO;
         }
 
-        private Core.Marco buscarMarcoLibre(Core.Proceso proceso) {
-            for (Integer idMarco : proceso.marcosAsignados) {
-                Core.Marco marco = marcos.get(idMarco);
-                if (marco.vpnCargada == null) {
-                    return marco;
+        private int buscarMarcoLibre(Core.Proceso proceso) {
+            Core.ListaEnteros asignados = proceso.marcosAsignados;
+            for (int i = 0; i < asignados.tamano(); i++) {
+                int idMarco = asignados.obtener(i);
+                if (marcos.estaLibre(idMarco)) {
+                    return idMarco;
                 }
             }
-            return null;
+            return Core.SIN_VALOR;
         }
 
-        private Core.Marco seleccionarMarcoVictima(Core.Proceso proceso) {
-            Core.Marco seleccionado = null;
-            for (Integer idMarco : proceso.marcosAsignados) {
-                Core.Marco candidato = marcos.get(idMarco);
-                if (seleccionado == null || candidato.ultimaReferencia < seleccionado.ultimaReferencia) {
+        private int seleccionarMarcoVictima(Core.Proceso proceso) {
+            Core.ListaEnteros asignados = proceso.marcosAsignados;
+            int seleccionado = Core.SIN_VALOR;
+            for (int i = 0; i < asignados.tamano(); i++) {
+                int candidato = asignados.obtener(i);
+                if (seleccionado == Core.SIN_VALOR || marcos.ultimaReferencia[candidato] < marcos.ultimaReferencia[seleccionado]) {
                     seleccionado = candidato;
                 }
             }
             return seleccionado;
         }
 
-        private void cargarPaginaEnMarco(Core.Proceso proceso, Core.Referencia referencia, Core.Marco marco) {
-            proceso.tablaPaginas.registrarMapeo(referencia.numeroPagina, marco.idMarco);
-            marco.pidDueno = proceso.pid;
-            marco.vpnCargada = referencia.numeroPagina;
-            actualizarUsoMarco(marco);
+        private void cargarPaginaEnMarco(Core.Proceso proceso, Core.Referencia referencia, int idMarco) {
+            proceso.tablaPaginas.registrarMapeo(referencia.numeroPagina, idMarco);
+            marcos.pidDueno[idMarco] = proceso.pid;
+            marcos.vpnCargada[idMarco] = referencia.numeroPagina;
+            actualizarUsoMarco(idMarco);
         }
 
-        private void actualizarUsoMarco(Core.Marco marco) {
+        private void actualizarUsoMarco(int idMarco) {
             relojGlobal++;
-            marco.ultimaReferencia = relojGlobal;
+            marcos.ultimaReferencia[idMarco] = relojGlobal;
         }
 
-        private void finalizarProceso(Core.Proceso proceso, Deque<Core.Proceso> cola) throws IOException {
-            if (!proceso.marcosAsignados.isEmpty()) {
+        private void finalizarProceso(Core.Proceso proceso) throws IOException {
+            if (!proceso.marcosAsignados.estaVacia()) {
                 IOKit.UtilidadesLog.imprimir(bitacora, "========================");
                 IOKit.UtilidadesLog.imprimir(bitacora, "Termino proc: " + proceso.pid);
                 IOKit.UtilidadesLog.imprimir(bitacora, "========================");
-                List<Integer> marcosLiberados = new ArrayList<>(proceso.marcosAsignados);
-                for (Integer idMarco : marcosLiberados) {
-                    Core.Marco marco = marcos.get(idMarco);
-                    if (marco.vpnCargada != null) {
-                        proceso.tablaPaginas.eliminarMapeo(marco.vpnCargada);
+                int[] marcosLiberados = proceso.marcosAsignados.aArreglo();
+                for (int idMarco : marcosLiberados) {
+                    if (!marcos.estaLibre(idMarco)) {
+                        proceso.tablaPaginas.eliminarMapeo(marcos.vpnCargada[idMarco]);
                     }
-                    marco.vpnCargada = null;
-                    marco.pidDueno = null;
-                    marco.ultimaReferencia = 0L;
+                    marcos.limpiar(idMarco);
                     IOKit.UtilidadesLog.imprimir(bitacora, "PROC " + proceso.pid + " removiendo marco: " + idMarco);
                 }
-                proceso.marcosAsignados.clear();
-                Core.Proceso destino = seleccionarProcesoConMasFallos(cola);
+                proceso.marcosAsignados.limpiar();
+                Core.Proceso destino = seleccionarProcesoConMasFallos(planificador.pendientes());
                 if (destino != null) {
-                    for (Integer idMarco : marcosLiberados) {
-                        Core.Marco marco = marcos.get(idMarco);
-                        marco.pidDueno = destino.pid;
-                        destino.marcosAsignados.add(idMarco);
+                    for (int idMarco : marcosLiberados) {
+                        marcos.pidDueno[idMarco] = destino.pid;
+                        destino.marcosAsignados.agregar(idMarco);
                         IOKit.UtilidadesLog.imprimir(bitacora, "PROC " + destino.pid + " asignando marco nuevo " + idMarco);
                     }
                 } else {
@@ -311,9 +1454,9 @@ public class App {
             }
         }
 
-        private Core.Proceso seleccionarProcesoConMasFallos(Deque<Core.Proceso> cola) {
+        private Core.Proceso seleccionarProcesoConMasFallos(List<Core.Proceso> pendientes) {
             Core.Proceso seleccionado = null;
-            for (Core.Proceso candidato : cola) {
+            for (Core.Proceso candidato : pendientes) {
                 if (candidato.finalizado) {
                     continue;
                 }
@@ -332,23 +1475,20 @@ public class App {
                 bitacora.flush();
             }
         }
-    }
-
-    private static final class ResultadoAcceso {
-        final boolean esAcierto;
-        final int swapsGenerados;
-
-        private ResultadoAcceso(boolean esAcierto, int swapsGenerados) {
-            this.esAcierto = esAcierto;
-            this.swapsGenerados = swapsGenerados;
-        }
 
-        static ResultadoAcceso acierto() {
-            return new ResultadoAcceso(true, 0);
-        }
+        static final class EncabezadoInstantanea {
+            final Path directorioEntrada;
+            final int totalMarcos;
+            final int numeroProcesos;
+            final ConfiguracionPlanificador planificador;
 
-        static ResultadoAcceso fallo(int swapsGenerados) {
-            return new ResultadoAcceso(false, swapsGenerados);
+            EncabezadoInstantanea(Path directorioEntrada, int totalMarcos, int numeroProcesos,
+                                  ConfiguracionPlanificador planificador) {
+                this.directorioEntrada = directorioEntrada;
+                this.totalMarcos = totalMarcos;
+                this.numeroProcesos = numeroProcesos;
+                this.planificador = planificador;
+            }
         }
     }
 }
@@ -1,10 +1,14 @@
-import java.util.ArrayList;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public final class Core {
 
+    public static final int SIN_VALOR = -1;
+
     private Core() {}
 
     public static final class Referencia {
@@ -28,40 +32,313 @@ public final class Core {
         }
     }
 
-    public static final class Marco {
-        public final int idMarco;
-        public Integer pidDueno;
-        public Integer vpnCargada;
-        public long ultimaReferencia;
+    public static final class TablaMarcos {
+        public final int[] pidDueno;
+        public final int[] vpnCargada;
+        public final long[] ultimaReferencia;
+
+        public TablaMarcos(int totalMarcos) {
+            this.pidDueno = new int[totalMarcos];
+            this.vpnCargada = new int[totalMarcos];
+            this.ultimaReferencia = new long[totalMarcos];
+            for (int idMarco = 0; idMarco < totalMarcos; idMarco++) {
+                limpiar(idMarco);
+            }
+        }
+
+        public int total() {
+            return pidDueno.length;
+        }
+
+        public boolean estaLibre(int idMarco) {
+            return vpnCargada[idMarco] == SIN_VALOR;
+        }
+
+        public void limpiar(int idMarco) {
+            pidDueno[idMarco] = SIN_VALOR;
+            vpnCargada[idMarco] = SIN_VALOR;
+            ultimaReferencia[idMarco] = 0L;
+        }
+    }
+
+    public static final class ListaEnteros {
+        private int[] valores;
+        private int tamano;
+
+        public ListaEnteros() {
+            this(8);
+        }
+
+        public ListaEnteros(int capacidadInicial) {
+            this.valores = new int[Math.max(1, capacidadInicial)];
+        }
+
+        public void agregar(int valor) {
+            if (tamano == valores.length) {
+                valores = Arrays.copyOf(valores, valores.length * 2);
+            }
+            valores[tamano++] = valor;
+        }
+
+        public int obtener(int indice) {
+            if (indice < 0 || indice >= tamano) {
+                throw new IndexOutOfBoundsException("Indice " + indice + " fuera de rango " + tamano);
+            }
+            return valores[indice];
+        }
+
+        public int tamano() {
+            return tamano;
+        }
 
-        public Marco(int idMarco) {
-            this.idMarco = idMarco;
+        public boolean estaVacia() {
+            return tamano == 0;
         }
 
         public void limpiar() {
-            pidDueno = null;
-            vpnCargada = null;
-            ultimaReferencia = 0L;
+            tamano = 0;
+        }
+
+        public int[] aArreglo() {
+            return Arrays.copyOf(valores, tamano);
+        }
+    }
+
+    /**
+     * Mapa int -> int con direccionamiento abierto y sondeo lineal. Las claves deben ser no negativas; la memoria
+     * crece con la cantidad de claves vivas y no con su magnitud. El borrado desplaza hacia atras la cadena de
+     * sondeo, asi que no quedan lapidas.
+     */
+    public static final class MapaEnteros {
+        private int[] claves;
+        private int[] valores;
+        private int tamano;
+
+        public MapaEnteros() {
+            this(16);
+        }
+
+        public MapaEnteros(int capacidadInicial) {
+            int capacidad = 16;
+            while (capacidad < capacidadInicial * 2) {
+                capacidad <<= 1;
+            }
+            claves = new int[capacidad];
+            valores = new int[capacidad];
+            Arrays.fill(claves, SIN_VALOR);
+        }
+
+        public int obtener(int clave) {
+            validarClave(clave);
+            int mascara = claves.length - 1;
+            for (int posicion = posicionInicial(clave, mascara); ; posicion = (posicion + 1) & mascara) {
+                int actual = claves[posicion];
+                if (actual == clave) {
+                    return valores[posicion];
+                }
+                if (actual == SIN_VALOR) {
+                    return SIN_VALOR;
+                }
+            }
+        }
+
+        public void poner(int clave, int valor) {
+            validarClave(clave);
+            int mascara = claves.length - 1;
+            int posicion = posicionInicial(clave, mascara);
+            while (claves[posicion] != SIN_VALOR && claves[posicion] != clave) {
+                posicion = (posicion + 1) & mascara;
+            }
+            if (claves[posicion] == SIN_VALOR) {
+                claves[posicion] = clave;
+                tamano++;
+            }
+            valores[posicion] = valor;
+            if (tamano * 2 > claves.length) {
+                crecer();
+            }
+        }
+
+        /**
+         * Elimina la clave y devuelve su valor, o {@link #SIN_VALOR} si no estaba.
+         */
+        public int eliminar(int clave) {
+            validarClave(clave);
+            int mascara = claves.length - 1;
+            int posicion = posicionInicial(clave, mascara);
+            while (claves[posicion] != clave) {
+                if (claves[posicion] == SIN_VALOR) {
+                    return SIN_VALOR;
+                }
+                posicion = (posicion + 1) & mascara;
+            }
+            int eliminado = valores[posicion];
+            int hueco = posicion;
+            for (int siguiente = (hueco + 1) & mascara; claves[siguiente] != SIN_VALOR; siguiente = (siguiente + 1) & mascara) {
+                int ideal = posicionInicial(claves[siguiente], mascara);
+                boolean puedeOcuparHueco = hueco <= siguiente
+                        ? ideal <= hueco || ideal > siguiente
+                        : ideal <= hueco && ideal > siguiente;
+                if (puedeOcuparHueco) {
+                    claves[hueco] = claves[siguiente];
+                    valores[hueco] = valores[siguiente];
+                    hueco = siguiente;
+                }
+            }
+            claves[hueco] = SIN_VALOR;
+            tamano--;
+            return eliminado;
+        }
+
+        public int tamano() {
+            return tamano;
+        }
+
+        /**
+         * Cantidad de posiciones internas; junto con {@link #claveEn} y {@link #valorEn} permite recorrer el mapa
+         * sin crear objetos.
+         */
+        public int capacidad() {
+            return claves.length;
+        }
+
+        public int claveEn(int posicion) {
+            return claves[posicion];
+        }
+
+        public int valorEn(int posicion) {
+            return valores[posicion];
+        }
+
+        private void crecer() {
+            int[] clavesAnteriores = claves;
+            int[] valoresAnteriores = valores;
+            claves = new int[clavesAnteriores.length * 2];
+            valores = new int[clavesAnteriores.length * 2];
+            Arrays.fill(claves, SIN_VALOR);
+            tamano = 0;
+            for (int i = 0; i < clavesAnteriores.length; i++) {
+                if (clavesAnteriores[i] != SIN_VALOR) {
+                    poner(clavesAnteriores[i], valoresAnteriores[i]);
+                }
+            }
+        }
+
+        /**
+         * {@link #SIN_VALOR} marca las posiciones vacias, asi que una clave negativa confundiria la busqueda.
+         */
+        private static void validarClave(int clave) {
+            if (clave < 0) {
+                throw new IllegalArgumentException("Clave negativa: " + clave);
+            }
+        }
+
+        private static int posicionInicial(int clave, int mascara) {
+            return (clave * 0x9E3779B9 >>> 16 ^ clave) & mascara;
+        }
+    }
+
+    /**
+     * Monticulo binario de maximos sobre valores long, sin objetos por elemento.
+     */
+    public static final class MonticuloLargos {
+        private long[] valores = new long[16];
+        private int tamano;
+
+        public void agregar(long valor) {
+            if (tamano == valores.length) {
+                valores = Arrays.copyOf(valores, valores.length * 2);
+            }
+            int hijo = tamano++;
+            while (hijo > 0) {
+                int padre = (hijo - 1) >>> 1;
+                if (valores[padre] >= valor) {
+                    break;
+                }
+                valores[hijo] = valores[padre];
+                hijo = padre;
+            }
+            valores[hijo] = valor;
+        }
+
+        public long maximo() {
+            if (tamano == 0) {
+                throw new IllegalStateException("Monticulo vacio");
+            }
+            return valores[0];
+        }
+
+        public long extraerMaximo() {
+            long maximo = maximo();
+            long ultimo = valores[--tamano];
+            int padre = 0;
+            while (true) {
+                int hijo = 2 * padre + 1;
+                if (hijo >= tamano) {
+                    break;
+                }
+                if (hijo + 1 < tamano && valores[hijo + 1] > valores[hijo]) {
+                    hijo++;
+                }
+                if (valores[hijo] <= ultimo) {
+                    break;
+                }
+                valores[padre] = valores[hijo];
+                padre = hijo;
+            }
+            valores[padre] = ultimo;
+            return maximo;
+        }
+
+        public boolean estaVacio() {
+            return tamano == 0;
+        }
+
+        public int tamano() {
+            return tamano;
         }
     }
 
     public static final class TablaPaginas {
-        private final Map<Integer, Integer> mapaVpnMarco = new HashMap<>();
+        private final MapaEnteros marcoPorVpn = new MapaEnteros();
 
-        public Integer obtenerMarcoParaVpn(int numeroPagina) {
-            return mapaVpnMarco.get(numeroPagina);
+        public int obtenerMarcoParaVpn(int numeroPagina) {
+            return marcoPorVpn.obtener(numeroPagina);
         }
 
         public void registrarMapeo(int numeroPagina, int idMarco) {
-            mapaVpnMarco.put(numeroPagina, idMarco);
+            marcoPorVpn.poner(numeroPagina, idMarco);
         }
 
         public void eliminarMapeo(int numeroPagina) {
-            mapaVpnMarco.remove(numeroPagina);
+            marcoPorVpn.eliminar(numeroPagina);
+        }
+
+        public int tamano() {
+            return marcoPorVpn.tamano();
+        }
+
+        /**
+         * Escribe la cantidad de mapeos seguida de cada par (vpn, marco), recorriendo el mapa primitivo directamente.
+         */
+        public void escribirMapeo(DataOutput salida) throws IOException {
+            salida.writeInt(marcoPorVpn.tamano());
+            for (int posicion = 0; posicion < marcoPorVpn.capacidad(); posicion++) {
+                if (marcoPorVpn.claveEn(posicion) != SIN_VALOR) {
+                    salida.writeInt(marcoPorVpn.claveEn(posicion));
+                    salida.writeInt(marcoPorVpn.valorEn(posicion));
+                }
+            }
         }
 
         public Map<Integer, Integer> copiarMapeo() {
-            return new HashMap<>(mapaVpnMarco);
+            Map<Integer, Integer> copia = new HashMap<>();
+            for (int posicion = 0; posicion < marcoPorVpn.capacidad(); posicion++) {
+                if (marcoPorVpn.claveEn(posicion) != SIN_VALOR) {
+                    copia.put(marcoPorVpn.claveEn(posicion), marcoPorVpn.valorEn(posicion));
+                }
+            }
+            return copia;
         }
     }
 
@@ -69,6 +346,7 @@ public final class Core {
         public long aciertos;
         public long fallos;
         public long swaps;
+        public long cambiosContexto;
 
         public double tasaFallos(int totalReferencias) {
             return totalReferencias == 0 ? 0.0 : (double) fallos / totalReferencias;
@@ -79,6 +357,37 @@ public final class Core {
         }
     }
 
+    public static final class CurvaFallos {
+        public final int pid;
+        public final long totalReferencias;
+        public final long referenciasMuestreadas;
+        public final double tasaMuestreo;
+        private final double[] tasasFallos;
+        private final double[] errores;
+
+        public CurvaFallos(int pid, long totalReferencias, long referenciasMuestreadas, double tasaMuestreo,
+                           double[] tasasFallos, double[] errores) {
+            this.pid = pid;
+            this.totalReferencias = totalReferencias;
+            this.referenciasMuestreadas = referenciasMuestreadas;
+            this.tasaMuestreo = tasaMuestreo;
+            this.tasasFallos = tasasFallos;
+            this.errores = errores;
+        }
+
+        public int maxMarcos() {
+            return tasasFallos.length;
+        }
+
+        public double tasaFallos(int marcos) {
+            return tasasFallos[marcos - 1];
+        }
+
+        public double errorEstimado(int marcos) {
+            return errores[marcos - 1];
+        }
+    }
+
     public static final class Proceso {
         public final int pid;
         public final int tamanoPagina;
@@ -88,7 +397,7 @@ public final class Core {
         public final int totalPaginas;
         public final List<Referencia> referencias;
         public final TablaPaginas tablaPaginas = new TablaPaginas();
-        public final List<Integer> marcosAsignados = new ArrayList<>();
+        public final ListaEnteros marcosAsignados = new ListaEnteros();
         public final Estadisticas estadisticas = new Estadisticas();
         public int indiceReferenciaActual;
         public boolean finalizado;
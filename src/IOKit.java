@@ -1,16 +1,35 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 public final class IOKit {
     
@@ -102,19 +121,7 @@ public final class IOKit {
         }
 
         public static List<Core.Proceso> leerProcesos(Path directorioEntrada, int numeroProcesosEsperados) throws IOException {
-            if (!Files.exists(directorioEntrada) || !Files.isDirectory(directorioEntrada)) {
-                throw new IOException("Directorio de entrada inexistente: " + directorioEntrada);
-            }
-            List<Path> archivos = new ArrayList<>();
-            try (Stream<Path> flujo = Files.list(directorioEntrada)) {
-                flujo.filter(p -> p.getFileName().toString().startsWith("proc") && p.getFileName().toString().endsWith(".txt"))
-                        .forEach(archivos::add);
-            }
-            archivos.sort(Comparator.comparingInt(ruta -> extraerIndiceProceso(ruta)));
-
-            if (numeroProcesosEsperados > 0 && archivos.size() != numeroProcesosEsperados) {
-                throw new IOException("Se esperaban " + numeroProcesosEsperados + " procesos pero se encontraron " + archivos.size());
-            }
+            List<Path> archivos = listarArchivosProcesos(directorioEntrada, numeroProcesosEsperados);
 
             List<Core.Proceso> procesos = new ArrayList<>();
             for (int indice = 0; indice < archivos.size(); indice++) {
@@ -126,6 +133,27 @@ public final class IOKit {
         }
 
         public static List<Core.Proceso> leerProcesos(Path directorioEntrada, int numeroProcesosEsperados, BufferedWriter bitacora) throws IOException {
+            return leerProcesos(directorioEntrada, numeroProcesosEsperados, bitacora, null);
+        }
+
+        public static List<Core.Proceso> leerProcesos(Path directorioEntrada, int numeroProcesosEsperados, BufferedWriter bitacora,
+                                                      CacheTrazas cache) throws IOException {
+            List<Path> archivos = listarArchivosProcesos(directorioEntrada, numeroProcesosEsperados);
+
+            List<Core.Proceso> procesos = new ArrayList<>();
+            for (int indice = 0; indice < archivos.size(); indice++) {
+                Path archivo = archivos.get(indice);
+                UtilidadesLog.imprimir(bitacora, "PROC " + indice + " == Leyendo archivo de configuración ==");
+                ProcesamientoArchivo resultado = cache == null
+                        ? leerArchivoProceso(archivo, indice, bitacora)
+                        : cache.obtener(archivo, indice, bitacora);
+                UtilidadesLog.imprimir(bitacora, "PROC " + indice + "== Terminó de leer archivo de configuración ==");
+                procesos.add(crearProcesoDesdeResultado(resultado, indice));
+            }
+            return procesos;
+        }
+
+        public static List<Path> listarArchivosProcesos(Path directorioEntrada, int numeroProcesosEsperados) throws IOException {
             if (!Files.exists(directorioEntrada) || !Files.isDirectory(directorioEntrada)) {
                 throw new IOException("Directorio de entrada inexistente: " + directorioEntrada);
             }
@@ -139,16 +167,7 @@ public final class IOKit {
             if (numeroProcesosEsperados > 0 && archivos.size() != numeroProcesosEsperados) {
                 throw new IOException("Se esperaban " + numeroProcesosEsperados + " procesos pero se encontraron " + archivos.size());
             }
-
-            List<Core.Proceso> procesos = new ArrayList<>();
-            for (int indice = 0; indice < archivos.size(); indice++) {
-                Path archivo = archivos.get(indice);
-                UtilidadesLog.imprimir(bitacora, "PROC " + indice + " == Leyendo archivo de configuración ==");
-                ProcesamientoArchivo resultado = leerArchivoProceso(archivo, indice, bitacora);
-                UtilidadesLog.imprimir(bitacora, "PROC " + indice + "== Terminó de leer archivo de configuración ==");
-                procesos.add(crearProcesoDesdeResultado(resultado, indice));
-            }
-            return procesos;
+            return archivos;
         }
 
         public static void escribirCsvEstadisticas(List<Core.Proceso> procesos, Path directorioSalida) throws IOException {
@@ -157,18 +176,66 @@ public final class IOKit {
             }
             Path archivo = directorioSalida.resolve("stats.csv");
             try (BufferedWriter escritor = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
-                escritor.write("pid,NR,fallos,aciertos,swaps,tasa_fallos,tasa_exito");
+                escritor.write(formatearCsvEstadisticas(procesos));
+            }
+        }
+
+        public static String formatearCsvEstadisticas(List<Core.Proceso> procesos) {
+            String salto = System.lineSeparator();
+            StringBuilder csv = new StringBuilder("pid,NR,fallos,aciertos,swaps,tasa_fallos,tasa_exito,cambios_contexto").append(salto);
+            for (Core.Proceso proceso : procesos) {
+                Core.Estadisticas estadisticas = proceso.estadisticas;
+                long aciertosDerivados = Math.max(0L, (long) proceso.totalReferencias - estadisticas.fallos);
+                double tasaFallos = estadisticas.tasaFallos(proceso.totalReferencias);
+                double tasaExito = 1.0 - tasaFallos;
+                csv.append(proceso.pid).append(',').append(proceso.totalReferencias).append(',').append(estadisticas.fallos).append(',')
+                        .append(aciertosDerivados).append(',').append(estadisticas.swaps).append(',')
+                        .append(String.format(Locale.US, "%.4f", tasaFallos)).append(',')
+                        .append(String.format(Locale.US, "%.4f", tasaExito)).append(',')
+                        .append(estadisticas.cambiosContexto).append(salto);
+            }
+            return csv.toString();
+        }
+
+        public static String formatearJsonEstadisticas(List<Core.Proceso> procesos) {
+            StringBuilder json = new StringBuilder("[");
+            for (int i = 0; i < procesos.size(); i++) {
+                Core.Proceso proceso = procesos.get(i);
+                Core.Estadisticas estadisticas = proceso.estadisticas;
+                long aciertosDerivados = Math.max(0L, (long) proceso.totalReferencias - estadisticas.fallos);
+                double tasaFallos = estadisticas.tasaFallos(proceso.totalReferencias);
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"pid\":").append(proceso.pid)
+                        .append(",\"NR\":").append(proceso.totalReferencias)
+                        .append(",\"fallos\":").append(estadisticas.fallos)
+                        .append(",\"aciertos\":").append(aciertosDerivados)
+                        .append(",\"swaps\":").append(estadisticas.swaps)
+                        .append(",\"tasa_fallos\":").append(String.format(Locale.US, "%.4f", tasaFallos))
+                        .append(",\"tasa_exito\":").append(String.format(Locale.US, "%.4f", 1.0 - tasaFallos))
+                        .append(",\"cambios_contexto\":").append(estadisticas.cambiosContexto)
+                        .append('}');
+            }
+            return json.append(']').toString();
+        }
+
+        public static void escribirCsvCurvas(List<Core.CurvaFallos> curvas, Path directorioSalida) throws IOException {
+            if (!Files.exists(directorioSalida)) {
+                Files.createDirectories(directorioSalida);
+            }
+            Path archivo = directorioSalida.resolve("mrc.csv");
+            try (BufferedWriter escritor = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+                escritor.write("pid,marcos,tasa_fallos,error_estimado,tasa_muestreo");
                 escritor.newLine();
-                for (Core.Proceso proceso : procesos) {
-                    Core.Estadisticas estadisticas = proceso.estadisticas;
-                    long aciertosDerivados = Math.max(0L, (long) proceso.totalReferencias - estadisticas.fallos);
-                    double tasaFallos = estadisticas.tasaFallos(proceso.totalReferencias);
-                    double tasaExito = 1.0 - tasaFallos;
-                    escritor.write(proceso.pid + "," + proceso.totalReferencias + "," + estadisticas.fallos + ","
-                            + aciertosDerivados + "," + estadisticas.swaps + ","
-                            + String.format(Locale.US, "%.4f", tasaFallos) + ","
-                            + String.format(Locale.US, "%.4f", tasaExito));
-                    escritor.newLine();
+                for (Core.CurvaFallos curva : curvas) {
+                    for (int marcos = 1; marcos <= curva.maxMarcos(); marcos++) {
+                        escritor.write(curva.pid + "," + marcos + ","
+                                + String.format(Locale.US, "%.4f", curva.tasaFallos(marcos)) + ","
+                                + String.format(Locale.US, "%.4f", curva.errorEstimado(marcos)) + ","
+                                + String.format(Locale.US, "%.6f", curva.tasaMuestreo));
+                        escritor.newLine();
+                    }
                 }
             }
         }
@@ -196,13 +263,7 @@ public final class IOKit {
             int nc = obtenerValorEntero(lineas.get(2), "NC");
             int nr = obtenerValorEntero(lineas.get(3), "NR");
             int np = obtenerValorEntero(lineas.get(4), "NP");
-            if (bitacora != null) {
-                UtilidadesLog.imprimir(bitacora, "PROC " + indiceEsperado + "leyendo TP. Tam Páginas: " + tp);
-                UtilidadesLog.imprimir(bitacora, "PROC " + indiceEsperado + "leyendo NF. Num Filas: " + nf);
-                UtilidadesLog.imprimir(bitacora, "PROC " + indiceEsperado + "leyendo NC. Num Cols: " + nc);
-                UtilidadesLog.imprimir(bitacora, "PROC " + indiceEsperado + "leyendo NR. Num Referencias: " + nr);
-                UtilidadesLog.imprimir(bitacora, "PROC " + indiceEsperado + "leyendo NP. Num Paginas: " + np);
-            }
+            registrarEncabezado(bitacora, indiceEsperado, tp, nf, nc, nr, np);
             List<Core.Referencia> referencias = new ArrayList<>();
 
             for (int i = 5; i < lineas.size(); i++) {
@@ -219,12 +280,23 @@ public final class IOKit {
             return new ProcesamientoArchivo(indiceEsperado, tp, nf, nc, nr, np, referencias);
         }
 
+        private static void registrarEncabezado(BufferedWriter bitacora, int indice, int tp, int nf, int nc, int nr, int np)
+                throws IOException {
+            if (bitacora != null) {
+                UtilidadesLog.imprimir(bitacora, "PROC " + indice + "leyendo TP. Tam Páginas: " + tp);
+                UtilidadesLog.imprimir(bitacora, "PROC " + indice + "leyendo NF. Num Filas: " + nf);
+                UtilidadesLog.imprimir(bitacora, "PROC " + indice + "leyendo NC. Num Cols: " + nc);
+                UtilidadesLog.imprimir(bitacora, "PROC " + indice + "leyendo NR. Num Referencias: " + nr);
+                UtilidadesLog.imprimir(bitacora, "PROC " + indice + "leyendo NP. Num Paginas: " + np);
+            }
+        }
+
         private static Core.Proceso crearProcesoDesdeResultado(ProcesamientoArchivo resultado, int pid) {
             return new Core.Proceso(pid, resultado.tamanoPagina, resultado.numeroFilas, resultado.numeroColumnas,
                     resultado.totalReferencias, resultado.totalPaginas, resultado.referencias);
         }
 
-        private static int obtenerValorEntero(String linea, String prefijo) throws IOException {
+        static int obtenerValorEntero(String linea, String prefijo) throws IOException {
             String limpia = linea.trim();
             String esperado = prefijo + "=";
             if (!limpia.startsWith(esperado)) {
@@ -233,6 +305,15 @@ public final class IOKit {
             return Integer.parseInt(limpia.substring(esperado.length()).trim());
         }
 
+        static long obtenerValorLargo(String linea, String prefijo) throws IOException {
+            String limpia = linea.trim();
+            String esperado = prefijo + "=";
+            if (!limpia.startsWith(esperado)) {
+                throw new IOException("Linea invalida: se esperaba " + esperado + " en " + linea);
+            }
+            return Long.parseLong(limpia.substring(esperado.length()).trim());
+        }
+
         private static Core.Referencia parsearReferencia(String linea, int tamanoPagina) throws IOException {
             String[] secciones = linea.split(",");
             if (secciones.length != 4) {
@@ -258,6 +339,9 @@ public final class IOKit {
 
             int numeroPagina = Integer.parseInt(secciones[1].trim());
             int desplazamiento = Integer.parseInt(secciones[2].trim());
+            if (numeroPagina < 0 || desplazamiento < 0) {
+                throw new IOException("Referencia invalida: " + linea);
+            }
             char operacion = secciones[3].trim().charAt(0);
             long direccionVirtual = (long) numeroPagina * tamanoPagina + desplazamiento;
             return new Core.Referencia(idMatriz, fila, columna, direccionVirtual, numeroPagina, desplazamiento, operacion);
@@ -285,8 +369,662 @@ public final class IOKit {
         }
     }
 
+    /**
+     * Cache de trazas ya parseadas para el modo servidor. Una entrada se reutiliza mientras el archivo conserve
+     * su fecha de modificacion y tamano; las referencias son inmutables y se comparten entre trabajos. El limite se
+     * mide en referencias (cada una ocupa unas decenas de bytes), no en archivos: se descartan las menos usadas
+     * hasta quedar por debajo, y una traza que sola supera el limite no se guarda.
+     */
+    public static final class CacheTrazas {
+        /** Estimacion conservadora de memoria por Core.Referencia en la lista de una traza. */
+        public static final long BYTES_POR_REFERENCIA = 64;
+
+        private final long maxReferencias;
+        private final Map<Path, EntradaCache> entradas;
+        private long referenciasGuardadas;
+
+        public CacheTrazas(long maxReferencias) {
+            this.maxReferencias = maxReferencias;
+            this.entradas = new LinkedHashMap<>(16, 0.75f, true);
+        }
+
+        /**
+         * Limite por defecto: lo que cabe en aproximadamente un cuarto del heap maximo de la JVM.
+         */
+        public static long maxReferenciasPorDefecto() {
+            return Math.max(1L, Runtime.getRuntime().maxMemory() / 4 / BYTES_POR_REFERENCIA);
+        }
+
+        EntradaSalidaProcesos.ProcesamientoArchivo obtener(Path ruta, int indice, BufferedWriter bitacora) throws IOException {
+            Path clave = ruta.toAbsolutePath().normalize();
+            long modificado = Files.getLastModifiedTime(clave).toMillis();
+            long tamano = Files.size(clave);
+            EntradaCache entrada;
+            synchronized (entradas) {
+                entrada = entradas.get(clave);
+            }
+            if (entrada != null && entrada.modificado == modificado && entrada.tamano == tamano) {
+                EntradaSalidaProcesos.ProcesamientoArchivo resultado = entrada.resultado;
+                EntradaSalidaProcesos.registrarEncabezado(bitacora, indice, resultado.tamanoPagina, resultado.numeroFilas,
+                        resultado.numeroColumnas, resultado.totalReferencias, resultado.totalPaginas);
+                return resultado;
+            }
+            EntradaSalidaProcesos.ProcesamientoArchivo resultado = EntradaSalidaProcesos.leerArchivoProceso(clave, indice, bitacora);
+            synchronized (entradas) {
+                EntradaCache anterior = entradas.remove(clave);
+                if (anterior != null) {
+                    referenciasGuardadas -= anterior.resultado.totalReferencias;
+                }
+                if (resultado.totalReferencias <= maxReferencias) {
+                    Iterator<EntradaCache> antiguas = entradas.values().iterator();
+                    while (referenciasGuardadas + resultado.totalReferencias > maxReferencias && antiguas.hasNext()) {
+                        referenciasGuardadas -= antiguas.next().resultado.totalReferencias;
+                        antiguas.remove();
+                    }
+                    entradas.put(clave, new EntradaCache(modificado, tamano, resultado));
+                    referenciasGuardadas += resultado.totalReferencias;
+                }
+            }
+            return resultado;
+        }
+
+        private static final class EntradaCache {
+            final long modificado;
+            final long tamano;
+            final EntradaSalidaProcesos.ProcesamientoArchivo resultado;
+
+            EntradaCache(long modificado, long tamano, EntradaSalidaProcesos.ProcesamientoArchivo resultado) {
+                this.modificado = modificado;
+                this.tamano = tamano;
+                this.resultado = resultado;
+            }
+        }
+    }
+
+    /**
+     * Recorre un archivo proc<i>.txt linea a linea entregando solo el numero de pagina de cada referencia,
+     * sin cargar la traza completa en memoria. Lee bytes directamente, sin crear cadenas por referencia.
+     */
+    public static final class LectorTraza implements Closeable {
+        private static final int TAMANO_BUFER = 1 << 16;
+
+        public final int tamanoPagina;
+        public final int numeroFilas;
+        public final int numeroColumnas;
+        public final long totalReferencias;
+        public final int totalPaginas;
+        private final Path ruta;
+        private final InputStream entrada;
+        private final byte[] bufer = new byte[TAMANO_BUFER];
+        private int posicion;
+        private int limite;
+        private long referenciasLeidas;
+
+        public LectorTraza(Path ruta) throws IOException {
+            this.ruta = ruta;
+            this.entrada = Files.newInputStream(ruta);
+            try {
+                this.tamanoPagina = EntradaSalidaProcesos.obtenerValorEntero(leerEncabezado(), "TP");
+                this.numeroFilas = EntradaSalidaProcesos.obtenerValorEntero(leerEncabezado(), "NF");
+                this.numeroColumnas = EntradaSalidaProcesos.obtenerValorEntero(leerEncabezado(), "NC");
+                this.totalReferencias = EntradaSalidaProcesos.obtenerValorLargo(leerEncabezado(), "NR");
+                this.totalPaginas = EntradaSalidaProcesos.obtenerValorEntero(leerEncabezado(), "NP");
+            } catch (IOException | RuntimeException error) {
+                entrada.close();
+                throw error;
+            }
+        }
+
+        /**
+         * Devuelve el numero de pagina de la siguiente referencia o -1 al llegar al final del archivo.
+         */
+        public int siguienteVpn() throws IOException {
+            int actual;
+            while ((actual = leerByte()) >= 0) {
+                if (actual == '\n' || actual == '\r' || actual == ' ' || actual == '\t') {
+                    continue;
+                }
+                while (actual != ',') {
+                    if (actual < 0 || actual == '\n') {
+                        throw referenciaInvalida();
+                    }
+                    actual = leerByte();
+                }
+                actual = saltarEspacios(leerByte());
+                long vpn = 0;
+                int digitos = 0;
+                while (actual >= '0' && actual <= '9') {
+                    vpn = vpn * 10 + (actual - '0');
+                    if (vpn > Integer.MAX_VALUE) {
+                        throw referenciaInvalida();
+                    }
+                    digitos++;
+                    actual = leerByte();
+                }
+                if (digitos == 0 || saltarEspacios(actual) != ',') {
+                    throw referenciaInvalida();
+                }
+                while (actual >= 0 && actual != '\n') {
+                    actual = leerByte();
+                }
+                referenciasLeidas++;
+                return (int) vpn;
+            }
+            if (referenciasLeidas != totalReferencias) {
+                throw new IOException("El archivo " + ruta + " reporta NR=" + totalReferencias + " pero contiene " + referenciasLeidas + " referencias");
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            entrada.close();
+        }
+
+        private int leerByte() throws IOException {
+            if (posicion == limite) {
+                limite = entrada.read(bufer, 0, bufer.length);
+                posicion = 0;
+                if (limite <= 0) {
+                    limite = 0;
+                    return -1;
+                }
+            }
+            return bufer[posicion++] & 0xFF;
+        }
+
+        private int saltarEspacios(int actual) throws IOException {
+            while (actual == ' ' || actual == '\t') {
+                actual = leerByte();
+            }
+            return actual;
+        }
+
+        private IOException referenciaInvalida() {
+            return new IOException("Referencia invalida en " + ruta + " (referencia " + (referenciasLeidas + 1) + ")");
+        }
+
+        private String leerEncabezado() throws IOException {
+            StringBuilder linea = new StringBuilder();
+            int actual = leerByte();
+            if (actual < 0) {
+                throw new IOException("Archivo de proceso incompleto: " + ruta);
+            }
+            while (actual >= 0 && actual != '\n') {
+                if (actual != '\r') {
+                    linea.append((char) actual);
+                }
+                actual = leerByte();
+            }
+            return linea.toString();
+        }
+    }
+
+    public interface DestinoReferencias {
+        void agregar(int numeroPagina, int desplazamiento, char operacion) throws IOException;
+    }
+
+    /**
+     * Convierte trazas externas de direcciones en referencias de pagina. Acepta lineas estilo Valgrind lackey
+     * ({@code L/S/M direccion,tamano}; {@code I} solo con incluirInstrucciones) o listas de direcciones hex
+     * ({@code [0x]direccion[,tamano]}), opcionalmente comprimidas con gzip. Lee bytes sin crear cadenas por
+     * linea y divide los accesos que cruzan paginas.
+     */
+    public static final class ImportadorTrazas {
+        private static final int TAMANO_BUFER = 1 << 16;
+        private static final byte[] VALOR_HEX = new byte[128];
+
+        static {
+            Arrays.fill(VALOR_HEX, (byte) -1);
+            for (int digito = 0; digito < 16; digito++) {
+                VALOR_HEX[Character.forDigit(digito, 16)] = (byte) digito;
+                VALOR_HEX[Character.toUpperCase(Character.forDigit(digito, 16))] = (byte) digito;
+            }
+        }
+
+        private final int tamanoPagina;
+        private final boolean incluirInstrucciones;
+        private final boolean conservarVpn;
+        private MapaPaginas paginasDensas;
+        private long lineasLeidas;
+
+        public ImportadorTrazas(int tamanoPagina, boolean incluirInstrucciones, boolean conservarVpn) {
+            if (tamanoPagina <= 0) {
+                throw new IllegalArgumentException("El tamano de pagina debe ser positivo");
+            }
+            this.tamanoPagina = tamanoPagina;
+            this.incluirInstrucciones = incluirInstrucciones;
+            this.conservarVpn = conservarVpn;
+        }
+
+        public void importar(Path origen, DestinoReferencias destino) throws IOException {
+            lineasLeidas = 0;
+            // Cada archivo es un proceso distinto: la numeracion densa empieza de cero y no arrastra memoria.
+            paginasDensas = conservarVpn ? null : new MapaPaginas();
+            try (InputStream entrada = abrir(origen)) {
+                byte[] bufer = new byte[TAMANO_BUFER];
+                byte[] linea = new byte[256];
+                int largo = 0;
+                int leidos;
+                while ((leidos = entrada.read(bufer)) > 0) {
+                    for (int i = 0; i < leidos; i++) {
+                        byte actual = bufer[i];
+                        if (actual == '\n') {
+                            procesarLinea(linea, largo, destino, origen);
+                            largo = 0;
+                        } else {
+                            if (largo == linea.length) {
+                                linea = Arrays.copyOf(linea, linea.length * 2);
+                            }
+                            linea[largo++] = actual;
+                        }
+                    }
+                }
+                if (largo > 0) {
+                    procesarLinea(linea, largo, destino, origen);
+                }
+            }
+        }
+
+        private static InputStream abrir(Path origen) throws IOException {
+            BufferedInputStream entrada = new BufferedInputStream(Files.newInputStream(origen), TAMANO_BUFER);
+            entrada.mark(2);
+            int primero = entrada.read();
+            int segundo = entrada.read();
+            entrada.reset();
+            if (primero == 0x1f && segundo == 0x8b) {
+                return new BufferedInputStream(new GZIPInputStream(entrada, TAMANO_BUFER), TAMANO_BUFER);
+            }
+            return entrada;
+        }
+
+        private void procesarLinea(byte[] linea, int largo, DestinoReferencias destino, Path origen) throws IOException {
+            lineasLeidas++;
+            int i = saltarEspacios(linea, 0, largo);
+            if (i == largo || linea[i] == '=' || linea[i] == '#' || linea[i] == '\r') {
+                return;
+            }
+            char tipo = 'r';
+            boolean lackey = i + 1 < largo && (linea[i + 1] == ' ' || linea[i + 1] == '\t')
+                    && (linea[i] == 'L' || linea[i] == 'S' || linea[i] == 'M' || linea[i] == 'I');
+            if (lackey) {
+                tipo = (char) linea[i];
+                if (tipo == 'I' && !incluirInstrucciones) {
+                    return;
+                }
+                i = saltarEspacios(linea, i + 1, largo);
+            }
+            if (i + 1 < largo && linea[i] == '0' && (linea[i + 1] == 'x' || linea[i + 1] == 'X')) {
+                i += 2;
+            }
+            long direccion = 0;
+            int inicio = i;
+            while (i < largo) {
+                int digito = linea[i] >= 0 ? VALOR_HEX[linea[i]] : -1;
+                if (digito < 0) {
+                    break;
+                }
+                direccion = (direccion << 4) | digito;
+                i++;
+            }
+            if (i == inicio || i - inicio > 16) {
+                throw new IOException(origen + ":" + lineasLeidas + ": direccion invalida");
+            }
+            long tamano = 1;
+            if (i < largo && linea[i] == ',') {
+                i++;
+                tamano = 0;
+                int inicioTamano = i;
+                while (i < largo && linea[i] >= '0' && linea[i] <= '9') {
+                    tamano = tamano * 10 + (linea[i] - '0');
+                    i++;
+                }
+                if (i == inicioTamano || tamano <= 0) {
+                    throw new IOException(origen + ":" + lineasLeidas + ": tamano de acceso invalido");
+                }
+            }
+            i = saltarEspacios(linea, i, largo);
+            if (i < largo && linea[i] != '\r') {
+                throw new IOException(origen + ":" + lineasLeidas + ": linea no reconocida");
+            }
+            if (tipo == 'M') {
+                emitir(direccion, tamano, 'r', destino);
+                emitir(direccion, tamano, 'w', destino);
+            } else {
+                emitir(direccion, tamano, tipo == 'S' ? 'w' : 'r', destino);
+            }
+        }
+
+        private void emitir(long direccion, long tamano, char operacion, DestinoReferencias destino) throws IOException {
+            long paginaInicial = Long.divideUnsigned(direccion, tamanoPagina);
+            long paginaFinal = Long.divideUnsigned(direccion + tamano - 1, tamanoPagina);
+            int desplazamiento = (int) Long.remainderUnsigned(direccion, tamanoPagina);
+            for (long pagina = paginaInicial; pagina <= paginaFinal; pagina++) {
+                destino.agregar(numeroPagina(pagina), desplazamiento, operacion);
+                desplazamiento = 0;
+            }
+        }
+
+        private int numeroPagina(long pagina) throws IOException {
+            if (paginasDensas != null) {
+                return paginasDensas.obtenerOAsignar(pagina);
+            }
+            // NP = VPN maxima + 1 debe caber en un int.
+            if (pagina >= Integer.MAX_VALUE) {
+                throw new IOException("VPN " + pagina + " fuera de rango; use un TP mayor o numeracion densa");
+            }
+            return (int) pagina;
+        }
+
+        private static int saltarEspacios(byte[] linea, int desde, int largo) {
+            int i = desde;
+            while (i < largo && (linea[i] == ' ' || linea[i] == '\t')) {
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * Renumera paginas virtuales en orden de primer acceso (direccionamiento abierto, claves long primitivas).
+         */
+        private static final class MapaPaginas {
+            private long[] claves = new long[1024];
+            private int[] valores = new int[1024];
+            private boolean[] ocupadas = new boolean[1024];
+            private int tamano;
+
+            int obtenerOAsignar(long pagina) {
+                int mascara = claves.length - 1;
+                int posicion = (int) (pagina * 0x9E3779B97F4A7C15L >>> 40) & mascara;
+                while (ocupadas[posicion]) {
+                    if (claves[posicion] == pagina) {
+                        return valores[posicion];
+                    }
+                    posicion = (posicion + 1) & mascara;
+                }
+                ocupadas[posicion] = true;
+                claves[posicion] = pagina;
+                valores[posicion] = tamano;
+                tamano++;
+                if (tamano * 2 > claves.length) {
+                    crecer();
+                }
+                return tamano - 1;
+            }
+
+            private void crecer() {
+                long[] clavesAnteriores = claves;
+                int[] valoresAnteriores = valores;
+                boolean[] ocupadasAnteriores = ocupadas;
+                claves = new long[clavesAnteriores.length * 2];
+                valores = new int[clavesAnteriores.length * 2];
+                ocupadas = new boolean[clavesAnteriores.length * 2];
+                int mascara = claves.length - 1;
+                for (int i = 0; i < clavesAnteriores.length; i++) {
+                    if (ocupadasAnteriores[i]) {
+                        int posicion = (int) (clavesAnteriores[i] * 0x9E3779B97F4A7C15L >>> 40) & mascara;
+                        while (ocupadas[posicion]) {
+                            posicion = (posicion + 1) & mascara;
+                        }
+                        ocupadas[posicion] = true;
+                        claves[posicion] = clavesAnteriores[i];
+                        valores[posicion] = valoresAnteriores[i];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Escribe un proc<i>.txt en una sola pasada. NR y NP se reservan con ancho fijo y se completan al cerrar.
+     */
+    public static final class EscritorTrazaProceso implements DestinoReferencias, Closeable {
+        private static final int ANCHO_CAMPO = 20;
+        private static final byte[] PREFIJO_REFERENCIA = "ME:[0-0],".getBytes(StandardCharsets.US_ASCII);
+
+        private final Path destino;
+        private final Path temporal;
+        private final FileChannel canal;
+        private final long posicionNr;
+        private final long posicionNp;
+        private final byte[] bufer = new byte[1 << 16];
+        private int usado;
+        private long totalReferencias;
+        private int maxPagina = -1;
+        private boolean confirmado;
+
+        /**
+         * Escribe en {@code archivo.tmp}; el archivo definitivo solo aparece al llamar {@link #confirmar()}. Si se
+         * cierra sin confirmar (p. ej. por un error de lectura) el temporal se borra y no queda una traza truncada.
+         */
+        public EscritorTrazaProceso(Path archivo, int tamanoPagina) throws IOException {
+            Path directorio = archivo.toAbsolutePath().getParent();
+            if (directorio != null && !Files.exists(directorio)) {
+                Files.createDirectories(directorio);
+            }
+            this.destino = archivo;
+            this.temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+            this.canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            String encabezado = "TP=" + tamanoPagina + "\nNF=0\nNC=0\nNR=";
+            escribirTexto(encabezado);
+            this.posicionNr = usado;
+            escribirTexto(campoFijo(0) + "\nNP=");
+            this.posicionNp = usado;
+            escribirTexto(campoFijo(0) + "\n");
+        }
+
+        @Override
+        public void agregar(int numeroPagina, int desplazamiento, char operacion) throws IOException {
+            if (bufer.length - usado < 48) {
+                vaciar();
+            }
+            System.arraycopy(PREFIJO_REFERENCIA, 0, bufer, usado, PREFIJO_REFERENCIA.length);
+            usado += PREFIJO_REFERENCIA.length;
+            escribirEntero(numeroPagina);
+            bufer[usado++] = ',';
+            escribirEntero(desplazamiento);
+            bufer[usado++] = ',';
+            bufer[usado++] = (byte) operacion;
+            bufer[usado++] = '\n';
+            totalReferencias++;
+            if (numeroPagina > maxPagina) {
+                maxPagina = numeroPagina;
+            }
+        }
+
+        public long totalReferencias() {
+            return totalReferencias;
+        }
+
+        /**
+         * Completa NR y NP en el encabezado y reemplaza el archivo definitivo con el temporal.
+         */
+        public void confirmar() throws IOException {
+            vaciar();
+            canal.write(ByteBuffer.wrap(campoFijo(totalReferencias).getBytes(StandardCharsets.US_ASCII)), posicionNr);
+            canal.write(ByteBuffer.wrap(campoFijo(maxPagina + 1L).getBytes(StandardCharsets.US_ASCII)), posicionNp);
+            canal.close();
+            try {
+                Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException error) {
+                Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+            }
+            confirmado = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (confirmado) {
+                return;
+            }
+            try {
+                canal.close();
+            } finally {
+                Files.deleteIfExists(temporal);
+            }
+        }
+
+        private static String campoFijo(long valor) {
+            StringBuilder campo = new StringBuilder(Long.toString(valor));
+            while (campo.length() < ANCHO_CAMPO) {
+                campo.append(' ');
+            }
+            return campo.toString();
+        }
+
+        private void escribirTexto(String texto) {
+            byte[] bytes = texto.getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(bytes, 0, bufer, usado, bytes.length);
+            usado += bytes.length;
+        }
+
+        private void escribirEntero(int valor) {
+            if (valor == 0) {
+                bufer[usado++] = '0';
+                return;
+            }
+            int inicio = usado;
+            while (valor > 0) {
+                bufer[usado++] = (byte) ('0' + valor % 10);
+                valor /= 10;
+            }
+            for (int i = inicio, j = usado - 1; i < j; i++, j--) {
+                byte temporal = bufer[i];
+                bufer[i] = bufer[j];
+                bufer[j] = temporal;
+            }
+        }
+
+        private void vaciar() throws IOException {
+            ByteBuffer contenido = ByteBuffer.wrap(bufer, 0, usado);
+            while (contenido.hasRemaining()) {
+                canal.write(contenido);
+            }
+            usado = 0;
+        }
+    }
+
+    /**
+     * Acumula referencias importadas en memoria para simularlas sin escribir archivos intermedios.
+     */
+    public static final class ColectorReferencias implements DestinoReferencias {
+        private final int tamanoPagina;
+        private final List<Core.Referencia> referencias = new ArrayList<>();
+        private int maxPagina = -1;
+
+        public ColectorReferencias(int tamanoPagina) {
+            this.tamanoPagina = tamanoPagina;
+        }
+
+        @Override
+        public void agregar(int numeroPagina, int desplazamiento, char operacion) {
+            long direccionVirtual = (long) numeroPagina * tamanoPagina + desplazamiento;
+            referencias.add(new Core.Referencia('E', 0, 0, direccionVirtual, numeroPagina, desplazamiento, operacion));
+            if (numeroPagina > maxPagina) {
+                maxPagina = numeroPagina;
+            }
+        }
+
+        public Core.Proceso construirProceso(int pid) {
+            return new Core.Proceso(pid, tamanoPagina, 0, 0, referencias.size(), maxPagina + 1, referencias);
+        }
+    }
+
+    public static final class Instantaneas {
+        private Instantaneas() {
+        }
+
+        public static byte[] leer(Path ruta) throws IOException {
+            if (!Files.isRegularFile(ruta)) {
+                throw new IOException("Instantanea inexistente: " + ruta);
+            }
+            return Files.readAllBytes(ruta);
+        }
+
+        public static void escribirAtomico(Path ruta, byte[] contenido) throws IOException {
+            Path directorio = ruta.toAbsolutePath().getParent();
+            if (directorio != null && !Files.exists(directorio)) {
+                Files.createDirectories(directorio);
+            }
+            Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+            Files.write(temporal, contenido);
+            try {
+                Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException error) {
+                Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * Escribe instantaneas en un hilo aparte. Si la escritura anterior sigue en curso la nueva se descarta,
+     * de modo que el ciclo de simulacion nunca espera al disco.
+     */
+    public static final class EscritorInstantaneas implements Closeable {
+        private final Path destino;
+        private final ExecutorService hiloEscritura;
+        private Future<?> escrituraPendiente;
+
+        public EscritorInstantaneas(Path destino) {
+            this.destino = destino;
+            this.hiloEscritura = Executors.newSingleThreadExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "escritor-instantaneas");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+
+        /**
+         * Indica si la escritura anterior ya termino; conviene consultarlo antes de serializar el estado para no
+         * pagar la captura de una instantanea que {@link #programar} descartaria.
+         */
+        public boolean puedeProgramar() {
+            return escrituraPendiente == null || escrituraPendiente.isDone();
+        }
+
+        public boolean programar(byte[] contenido) throws IOException {
+            if (escrituraPendiente != null) {
+                if (!escrituraPendiente.isDone()) {
+                    return false;
+                }
+                esperar(escrituraPendiente);
+            }
+            escrituraPendiente = hiloEscritura.submit(() -> {
+                Instantaneas.escribirAtomico(destino, contenido);
+                return null;
+            });
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            hiloEscritura.shutdown();
+            if (escrituraPendiente != null) {
+                esperar(escrituraPendiente);
+                escrituraPendiente = null;
+            }
+        }
+
+        private static void esperar(Future<?> escritura) throws IOException {
+            try {
+                escritura.get();
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrumpido escribiendo instantanea", error);
+            } catch (ExecutionException error) {
+                Throwable causa = error.getCause();
+                if (causa instanceof IOException) {
+                    throw (IOException) causa;
+                }
+                throw new IOException("Fallo escribiendo instantanea", causa);
+            }
+        }
+    }
+
     public static final class UtilidadesLog {
         private static final DateTimeFormatter FORMATO = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+        private static final ThreadLocal<Boolean> CONSOLA_ACTIVA = ThreadLocal.withInitial(() -> Boolean.TRUE);
 
         private UtilidadesLog() {
         }
@@ -295,13 +1033,30 @@ public final class IOKit {
             if (!Files.exists(directorioSalida)) {
                 Files.createDirectories(directorioSalida);
             }
-            String nombre = "run_" + LocalDateTime.now().format(FORMATO) + ".log";
-            Path ruta = directorioSalida.resolve(nombre);
-            return Files.newBufferedWriter(ruta, StandardCharsets.UTF_8);
+            // Varias corridas en el mismo segundo (p. ej. en el servidor) reciben un sufijo en vez de pisarse.
+            String prefijo = "run_" + LocalDateTime.now().format(FORMATO);
+            for (int intento = 0; ; intento++) {
+                String nombre = intento == 0 ? prefijo + ".log" : prefijo + "_" + intento + ".log";
+                try {
+                    return Files.newBufferedWriter(directorioSalida.resolve(nombre), StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                } catch (FileAlreadyExistsException existente) {
+                    // Probar con el siguiente sufijo.
+                }
+            }
+        }
+
+        /**
+         * Activa o silencia el eco por consola del hilo actual; los trabajos del servidor solo escriben la bitacora.
+         */
+        public static void activarConsola(boolean activa) {
+            CONSOLA_ACTIVA.set(activa);
         }
 
         public static void imprimir(BufferedWriter bitacora, String mensaje) throws IOException {
-            System.out.println(mensaje);
+            if (CONSOLA_ACTIVA.get()) {
+                System.out.println(mensaje);
+            }
             if (bitacora != null) {
                 bitacora.write(mensaje);
                 bitacora.newLine();
@@ -0,0 +1,81 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Verifica que el ciclo del motor no cree objetos por referencia cuando el registro detallado esta apagado: los
+ * bytes asignados por el hilo deben ser practicamente los mismos con N y con 10N referencias.
+ */
+public class PruebaMotorSinAsignaciones {
+
+    private static final int PROCESOS = 4;
+    private static final int PAGINAS = 24;
+    private static final int MARCOS = 32;
+    private static final int REFERENCIAS_BASE = 50_000;
+    private static final long TOLERANCIA_BYTES = 4096;
+
+    public static void main(String[] args) throws Exception {
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!hilos.isThreadAllocatedMemorySupported()) {
+            System.out.println("La JVM no mide asignaciones por hilo; prueba omitida");
+            return;
+        }
+        hilos.setThreadAllocatedMemoryEnabled(true);
+        IOKit.UtilidadesLog.activarConsola(false);
+
+        String[][] modos = {
+                {App.ConfiguracionPlanificador.ROUND_ROBIN, "0"},
+                {App.ConfiguracionPlanificador.QUANTUM, "8"},
+                {App.ConfiguracionPlanificador.HASTA_FALLO, "0"},
+                {App.ConfiguracionPlanificador.PRIORIDAD, "0"},
+        };
+        boolean correcto = true;
+        for (String[] modo : modos) {
+            // Calentamiento para que el JIT no cuente en la medicion.
+            for (int i = 0; i < 3; i++) {
+                medir(hilos, modo, REFERENCIAS_BASE);
+            }
+            long corto = medir(hilos, modo, REFERENCIAS_BASE);
+            long largo = medir(hilos, modo, REFERENCIAS_BASE * 10);
+            long extra = largo - corto;
+            boolean ok = extra <= TOLERANCIA_BYTES;
+            correcto &= ok;
+            System.out.printf("%-12s %d refs=%d B, %d refs=%d B, diferencia=%d B %s%n", modo[0],
+                    REFERENCIAS_BASE * PROCESOS, corto, REFERENCIAS_BASE * 10 * PROCESOS, largo, extra,
+                    ok ? "OK" : "FALLA");
+        }
+        if (!correcto) {
+            System.exit(1);
+        }
+    }
+
+    private static long medir(com.sun.management.ThreadMXBean hilos, String[] modo, int referenciasPorProceso)
+            throws Exception {
+        List<Core.Proceso> procesos = new ArrayList<>();
+        int[] prioridades = new int[PROCESOS];
+        for (int pid = 0; pid < PROCESOS; pid++) {
+            procesos.add(crearProceso(pid, referenciasPorProceso));
+            prioridades[pid] = pid % 2;
+        }
+        App.ConfiguracionPlanificador configuracion = App.ConfiguracionPlanificador.crear(modo[0],
+                Integer.parseInt(modo[1]), App.ConfiguracionPlanificador.PRIORIDAD.equals(modo[0]) ? prioridades : null,
+                PROCESOS);
+        App.SimuladorMotor motor = new App.SimuladorMotor(procesos, MARCOS, PROCESOS, null, configuracion, null);
+        motor.configurarRegistroDetallado(false);
+        long hilo = Thread.currentThread().getId();
+        long antes = hilos.getThreadAllocatedBytes(hilo);
+        motor.ejecutar();
+        return hilos.getThreadAllocatedBytes(hilo) - antes;
+    }
+
+    /** Recorre las paginas con saltos irregulares para mezclar aciertos, fallos y reemplazos. */
+    private static Core.Proceso crearProceso(int pid, int totalReferencias) {
+        List<Core.Referencia> referencias = new ArrayList<>(totalReferencias);
+        int pagina = pid;
+        for (int i = 0; i < totalReferencias; i++) {
+            pagina = (pagina * 7 + i % 5) % PAGINAS;
+            referencias.add(new Core.Referencia('A', 0, 0, (long) pagina * 4096, pagina, 0, i % 3 == 0 ? 'W' : 'R'));
+        }
+        return new Core.Proceso(pid, 4096, 1, 1, totalReferencias, PAGINAS, referencias);
+    }
+}